@@ -0,0 +1,71 @@
+package org.poli.bench;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import org.poli.generatefiles.Product;
+import org.poli.generatefiles.Salesman;
+import org.poli.main.ProductCatalog;
+
+/**
+ * Conjunto de datos sintético para los benchmarks: vendedores, catálogo de
+ * precios y archivos {@code sales_<id>_<n>.csv} escritos en un directorio
+ * temporal.
+ */
+public class BenchData {
+
+    final Path dir;
+    final List<Salesman> salesmen = new ArrayList<>();
+    final List<Product> products = new ArrayList<>();
+    final ProductCatalog catalog;
+
+    /**
+     * Genera el conjunto de datos con una semilla fija.
+     *
+     * @param salesmanCount Número de vendedores
+     * @param filesPerSalesman Archivos de ventas por vendedor
+     * @param linesPerFile Líneas de producto por archivo
+     * @param productCount Número de productos del catálogo
+     * @throws IOException Si no se pueden escribir los archivos
+     */
+    BenchData(int salesmanCount, int filesPerSalesman, int linesPerFile, int productCount) throws IOException {
+        dir = Files.createTempDirectory("poli-bench");
+        SplittableRandom random = new SplittableRandom(42);
+        for (int p = 1; p <= productCount; p++) {
+            products.add(new Product(String.format("P%03d", p), "Producto" + p, (random.nextInt(50) + 1) * 1000));
+        }
+        catalog = new ProductCatalog(products);
+        for (int s = 0; s < salesmanCount; s++) {
+            long id = 10_000_000L + s;
+            salesmen.add(new Salesman("CC", id, "Vendedor" + s));
+            for (int f = 1; f <= filesPerSalesman; f++) {
+                Path file = dir.resolve("sales_" + id + "_" + f + ".csv");
+                try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                    writer.write("TipoDocumentoVendedor;IDVendedor\n");
+                    writer.write("CC;" + id + "\n");
+                    writer.write("ProductID;Quantity\n");
+                    for (int l = 0; l < linesPerFile; l++) {
+                        writer.write(String.format("P%03d;%d\n", random.nextInt(productCount) + 1, random.nextInt(5) + 1));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Borra el directorio temporal y su contenido.
+     *
+     * @throws IOException Si no se puede borrar algún archivo
+     */
+    void delete() throws IOException {
+        try (var files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(dir);
+    }
+}
@@ -0,0 +1,46 @@
+package org.poli.bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.poli.main.SalesAggregator;
+import org.poli.main.SalesFileIndex;
+import org.poli.main.SalesTotals;
+
+/**
+ * Mide cómo escala {@link SalesAggregator} con 1, 2, 4, 8 y 16 hilos sobre
+ * el mismo conjunto de archivos de ventas.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ParallelAggregationBenchmark {
+
+    @Param({"1", "2", "4", "8", "16"})
+    int threads;
+
+    @Param({"2000"})
+    int salesmen;
+
+    private BenchData data;
+    private SalesFileIndex index;
+
+    @Setup
+    public void setUp() throws IOException {
+        data = new BenchData(salesmen, 3, 200, 100);
+        index = SalesFileIndex.scan(data.dir);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        data.delete();
+    }
+
+    @Benchmark
+    public SalesTotals aggregate() {
+        return new SalesAggregator(data.catalog, threads).aggregate(data.salesmen, index);
+    }
+}
@@ -0,0 +1,166 @@
+package org.poli.bench;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.poli.generatefiles.BinaryCatalog;
+import org.poli.generatefiles.GeneratorOptions;
+import org.poli.generatefiles.Product;
+import org.poli.generatefiles.SalesDataGenerator;
+import org.poli.generatefiles.Salesman;
+import org.poli.main.PipelineMetrics;
+import org.poli.main.PipelinedAggregator;
+import org.poli.main.ProductCatalog;
+import org.poli.main.SalesAggregator;
+import org.poli.main.SalesFileIndex;
+import org.poli.main.SalesLineParser;
+import org.poli.main.SalesReports;
+import org.poli.main.SalesTotals;
+
+/**
+ * Mide cada etapa del reporte (carga de catálogos, búsqueda de archivos,
+ * interpretación de líneas, agregación, ordenamiento y escritura) sobre
+ * conjuntos generados con {@link SalesDataGenerator} de 1K, 100K y 10M
+ * líneas de venta.
+ *
+ * <p>
+ * La agregación se mide por defecto con 1, 2, 4, 8 y 16 hilos; la tasa de
+ * asignación se obtiene con {@code -prof gc}. Para acotar la corrida se
+ * eligen tamaños e hilos con {@code -p}, por ejemplo:
+ * </p>
+ *
+ * <pre>
+ * ant bench -Dbench.args="PipelineBenchmark -p lines=100000 -p threads=1,4 -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class PipelineBenchmark {
+
+    private static final int PRODUCTS = 1000;
+    private static final int FILES_PER_SALESMAN = 2;
+
+    @Param({"1000", "100000", "10000000"})
+    int lines;
+
+    @Param({"1", "2", "4", "8", "16"})
+    int threads;
+
+    private Path dir;
+    private Path output;
+    private ProductCatalog catalog;
+    private List<Salesman> salesmen;
+    private SalesFileIndex index;
+    private SalesTotals totals;
+    private List<SalesReports.SalesEntry> sortedSalesmen;
+    private List<SalesReports.ProductEntry> sortedProducts;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("poli-pipeline");
+        output = Files.createTempDirectory("poli-reports");
+        int salesmanCount = Math.max(1, (int) Math.sqrt(lines / 10.0));
+        int linesPerFile = Math.max(1, lines / (salesmanCount * FILES_PER_SALESMAN));
+        new SalesDataGenerator(GeneratorOptions.parse(new String[] {
+            "--dir", dir.toString(), "--seed", "42", "--products", String.valueOf(PRODUCTS),
+            "--salesmen", String.valueOf(salesmanCount), "--files-per-salesman", String.valueOf(FILES_PER_SALESMAN),
+            "--lines-per-file", String.valueOf(linesPerFile) })).generate();
+
+        catalog = new ProductCatalog(BinaryCatalog.readProducts(dir.resolve("products.bin")));
+        salesmen = BinaryCatalog.readSalesmen(dir.resolve("salesmen.bin"));
+        index = SalesFileIndex.scan(dir);
+        totals = new SalesAggregator(catalog).aggregate(salesmen, index);
+        sortedSalesmen = SalesReports.sortSalesmen(totals);
+        sortedProducts = SalesReports.sortProducts(totals);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        delete(dir);
+        delete(output);
+    }
+
+    @Benchmark
+    public void loadCatalogs(Blackhole bh) throws IOException {
+        bh.consume(new ProductCatalog(BinaryCatalog.<Product>readProducts(dir.resolve("products.bin"))));
+        for (Salesman salesman : BinaryCatalog.readSalesmen(dir.resolve("salesmen.bin"))) {
+            bh.consume(salesman);
+        }
+    }
+
+    @Benchmark
+    public SalesFileIndex scanFiles() throws IOException {
+        return SalesFileIndex.scan(dir);
+    }
+
+    @Benchmark
+    public void parseLines(Blackhole bh) throws IOException {
+        SalesLineParser parser = new SalesLineParser(catalog);
+        SalesLineParser.LineHandler handler = new SalesLineParser.LineHandler() {
+            @Override
+            public void onProduct(int productIndex, int quantity) {
+                bh.consume(productIndex);
+                bh.consume(quantity);
+            }
+
+            @Override
+            public void onUnknownProduct(String productId, int quantity) {
+                bh.consume(productId);
+            }
+        };
+        for (Salesman salesman : salesmen) {
+            for (Path file : index.filesFor(String.valueOf(salesman.getId()))) {
+                try (InputStream in = Files.newInputStream(file)) {
+                    parser.parse(in, handler);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public SalesTotals aggregate() {
+        return new SalesAggregator(catalog, threads).aggregate(salesmen, index);
+    }
+
+    @Benchmark
+    public SalesTotals aggregatePipelined() {
+        return new PipelinedAggregator(catalog, threads, 1, new PipelineMetrics()).aggregate(salesmen, index);
+    }
+
+    @Benchmark
+    public void sort(Blackhole bh) {
+        bh.consume(SalesReports.sortSalesmen(totals));
+        bh.consume(SalesReports.sortProducts(totals));
+    }
+
+    @Benchmark
+    public void top100(Blackhole bh) {
+        bh.consume(SalesReports.topSalesmen(totals, 100, threads));
+        bh.consume(SalesReports.topProducts(totals, 100, threads));
+    }
+
+    @Benchmark
+    public void writeReports() throws IOException {
+        SalesReports.writeSalesReport(sortedSalesmen, 0, output.resolve("sales_report.csv"));
+        SalesReports.writeProductsReport(sortedProducts, output.resolve("products_report.csv"));
+    }
+
+    private static void delete(Path root) throws IOException {
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+}
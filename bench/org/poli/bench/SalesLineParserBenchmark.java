@@ -0,0 +1,90 @@
+package org.poli.bench;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.poli.generatefiles.Product;
+import org.poli.main.ProductCatalog;
+import org.poli.main.SalesLineParser;
+
+/**
+ * Compara el intérprete de bytes {@link SalesLineParser} con la ruta anterior
+ * basada en {@code BufferedReader.readLine()} y {@code String.split(";")}.
+ * Ejecutar con {@code -prof gc} para comparar también la tasa de asignación.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class SalesLineParserBenchmark {
+
+    @Param({"100000"})
+    int lines;
+
+    private byte[] content;
+    private SalesLineParser parser;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        List<Product> products = new ArrayList<>();
+        for (int p = 1; p <= 100; p++) {
+            products.add(new Product(String.format("P%03d", p), "Producto" + p, p * 1000));
+        }
+        StringBuilder sb = new StringBuilder("TipoDocumentoVendedor;IDVendedor\nCC;10000000\nProductID;Quantity\n");
+        for (int l = 0; l < lines; l++) {
+            sb.append(products.get(random.nextInt(products.size())).getId()).append(';')
+                    .append(random.nextInt(5) + 1).append('\n');
+        }
+        content = sb.toString().getBytes(StandardCharsets.UTF_8);
+        parser = new SalesLineParser(new ProductCatalog(products));
+    }
+
+    @Benchmark
+    public void byteParser(Blackhole bh) throws IOException {
+        parser.parse(new ByteArrayInputStream(content), new SalesLineParser.LineHandler() {
+            @Override
+            public void onProduct(int productIndex, int quantity) {
+                bh.consume(productIndex);
+                bh.consume(quantity);
+            }
+
+            @Override
+            public void onUnknownProduct(String productId, int quantity) {
+                bh.consume(productId);
+                bh.consume(quantity);
+            }
+        });
+    }
+
+    @Benchmark
+    public void readLineSplit(Blackhole bh) throws IOException {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new ByteArrayInputStream(content), StandardCharsets.UTF_8))) {
+            boolean readingProducts = false;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("ProductID")) {
+                    readingProducts = true;
+                    continue;
+                }
+                if (!readingProducts) {
+                    continue;
+                }
+                String[] parts = line.split(";");
+                if (parts.length >= 2) {
+                    bh.consume(parts[0]);
+                    bh.consume(Integer.parseInt(parts[1]));
+                }
+            }
+        }
+    }
+}
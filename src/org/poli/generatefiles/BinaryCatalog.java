@@ -0,0 +1,289 @@
+package org.poli.generatefiles;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * Formato binario columnar y versionado para los catálogos de productos y
+ * vendedores, que reemplaza los archivos {@code .ser} de Java.
+ *
+ * <pre>
+ * int    magic ("PCAT")
+ * short  versión
+ * short  tipo (1 = productos, 2 = vendedores)
+ * int    cantidad de registros (n)
+ *
+ * Productos:                      Vendedores:
+ *   int[n]     precios              long[n]    IDs
+ *   texto[n]   IDs                  texto[n]   tipos de documento
+ *   texto[n]   nombres              texto[n]   nombres
+ *
+ * texto[n] = int[n + 1] desplazamientos + bytes UTF-8 concatenados
+ * </pre>
+ *
+ * <p>
+ * Todos los enteros están en orden big-endian. La lectura mapea el archivo en
+ * memoria y devuelve listas de solo lectura que decodifican cada registro al
+ * pedirlo, sin reflexión ni deserialización, por lo que abrir un catálogo de
+ * millones de registros toma milisegundos.
+ * </p>
+ */
+public final class BinaryCatalog {
+
+    private static final int MAGIC = 0x50434154; // "PCAT"
+    private static final short VERSION = 1;
+    private static final short PRODUCTS = 1;
+    private static final short SALESMEN = 2;
+    private static final int HEADER_SIZE = 12;
+
+    private BinaryCatalog() {
+    }
+
+    /**
+     * Escribe el catálogo de productos.
+     *
+     * @param products Productos a escribir
+     * @param path Archivo de salida
+     * @throws IOException Si ocurre un error de escritura
+     */
+    public static void writeProducts(List<Product> products, Path path) throws IOException {
+        int n = products.size();
+        byte[][] ids = new byte[n][];
+        byte[][] names = new byte[n][];
+        for (int i = 0; i < n; i++) {
+            ids[i] = products.get(i).getId().getBytes(StandardCharsets.UTF_8);
+            names[i] = products.get(i).getName().getBytes(StandardCharsets.UTF_8);
+        }
+        try (DataOutputStream out = open(path)) {
+            writeHeader(out, PRODUCTS, n);
+            for (Product p : products) {
+                out.writeInt(p.getPrice());
+            }
+            writeStrings(out, ids);
+            writeStrings(out, names);
+        }
+    }
+
+    /**
+     * Escribe el catálogo de vendedores.
+     *
+     * @param salesmen Vendedores a escribir
+     * @param path Archivo de salida
+     * @throws IOException Si ocurre un error de escritura
+     */
+    public static void writeSalesmen(List<Salesman> salesmen, Path path) throws IOException {
+        int n = salesmen.size();
+        byte[][] documentTypes = new byte[n][];
+        byte[][] names = new byte[n][];
+        for (int i = 0; i < n; i++) {
+            documentTypes[i] = salesmen.get(i).getDocumentType().getBytes(StandardCharsets.UTF_8);
+            names[i] = salesmen.get(i).getName().getBytes(StandardCharsets.UTF_8);
+        }
+        try (DataOutputStream out = open(path)) {
+            writeHeader(out, SALESMEN, n);
+            for (Salesman s : salesmen) {
+                out.writeLong(s.getId());
+            }
+            writeStrings(out, documentTypes);
+            writeStrings(out, names);
+        }
+    }
+
+    /**
+     * Abre un catálogo de productos mapeándolo en memoria.
+     *
+     * @param path Archivo del catálogo
+     * @return Lista de solo lectura de productos
+     * @throws IOException Si el archivo no existe o no tiene el formato
+     */
+    public static List<Product> readProducts(Path path) throws IOException {
+        ByteBuffer buffer = map(path);
+        int n = readHeader(buffer, PRODUCTS, path);
+        int pricesAt = HEADER_SIZE;
+        StringColumn ids = new StringColumn(buffer, pricesAt + 4 * n, n, path);
+        StringColumn names = new StringColumn(buffer, ids.end, n, path);
+        return new MappedList<>(n, i -> new Product(ids.get(i), names.get(i), buffer.getInt(pricesAt + 4 * i)));
+    }
+
+    /**
+     * Abre un catálogo de vendedores mapeándolo en memoria.
+     *
+     * @param path Archivo del catálogo
+     * @return Lista de solo lectura de vendedores
+     * @throws IOException Si el archivo no existe o no tiene el formato
+     */
+    public static List<Salesman> readSalesmen(Path path) throws IOException {
+        ByteBuffer buffer = map(path);
+        int n = readHeader(buffer, SALESMEN, path);
+        int idsAt = HEADER_SIZE;
+        StringColumn documentTypes = new StringColumn(buffer, idsAt + 8 * n, n, path);
+        StringColumn names = new StringColumn(buffer, documentTypes.end, n, path);
+        return new MappedSalesmen(n, buffer, idsAt, documentTypes, names);
+    }
+
+    /**
+     * Obtiene el ID del vendedor en la posición dada de una lista. Si la
+     * lista viene de {@link #readSalesmen(Path)}, el ID se lee directo del
+     * mapeo, sin decodificar el tipo de documento ni el nombre; sirve para
+     * los recorridos que solo necesitan el ID de cada vendedor.
+     *
+     * @param salesmen Lista de vendedores
+     * @param index Posición del vendedor
+     * @return ID del vendedor
+     */
+    public static long salesmanId(List<Salesman> salesmen, int index) {
+        return salesmen instanceof MappedSalesmen
+                ? ((MappedSalesmen) salesmen).idAt(index)
+                : salesmen.get(index).getId();
+    }
+
+    private static DataOutputStream open(Path path) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 64 * 1024));
+    }
+
+    private static void writeHeader(DataOutputStream out, short kind, int count) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeShort(kind);
+        out.writeInt(count);
+    }
+
+    private static void writeStrings(DataOutputStream out, byte[][] values) throws IOException {
+        long offset = 0;
+        out.writeInt(0);
+        for (byte[] value : values) {
+            offset += value.length;
+            if (offset > Integer.MAX_VALUE) {
+                throw new IOException("La columna de texto supera 2 GiB");
+            }
+            out.writeInt((int) offset);
+        }
+        for (byte[] value : values) {
+            out.write(value);
+        }
+    }
+
+    private static ByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Catálogo demasiado grande: " + path);
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    private static int readHeader(ByteBuffer buffer, short kind, Path path) throws IOException {
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("No es un catálogo binario: " + path);
+        }
+        if (buffer.getShort(4) != VERSION) {
+            throw new IOException("Versión de catálogo no soportada (" + buffer.getShort(4) + "): " + path);
+        }
+        if (buffer.getShort(6) != kind) {
+            throw new IOException("Tipo de catálogo inesperado: " + path);
+        }
+        int count = buffer.getInt(8);
+        if (count < 0) {
+            throw new IOException("Catálogo corrupto: " + path);
+        }
+        return count;
+    }
+
+    /**
+     * Columna de textos: desplazamientos seguidos de los bytes UTF-8.
+     */
+    private static class StringColumn {
+
+        final ByteBuffer buffer;
+        final int offsetsAt;
+        final int dataAt;
+        final int end;
+
+        StringColumn(ByteBuffer buffer, long offsetsAt, int count, Path path) throws IOException {
+            long dataAt = offsetsAt + 4L * (count + 1);
+            if (dataAt > buffer.limit()) {
+                throw new IOException("Catálogo corrupto: " + path);
+            }
+            this.buffer = buffer;
+            this.offsetsAt = (int) offsetsAt;
+            this.dataAt = (int) dataAt;
+            long end = dataAt + buffer.getInt(this.offsetsAt + 4 * count);
+            if (end > buffer.limit()) {
+                throw new IOException("Catálogo corrupto: " + path);
+            }
+            this.end = (int) end;
+        }
+
+        String get(int index) {
+            int from = buffer.getInt(offsetsAt + 4 * index);
+            int to = buffer.getInt(offsetsAt + 4 * index + 4);
+            byte[] bytes = new byte[to - from];
+            buffer.get(dataAt + from, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Decodifica un registro a partir de su posición.
+     */
+    private interface RecordReader<T> {
+
+        T read(int index);
+    }
+
+    /**
+     * Lista de solo lectura que decodifica cada registro al pedirlo.
+     */
+    private static class MappedList<T> extends AbstractList<T> implements RandomAccess {
+
+        private final int size;
+        private final RecordReader<T> reader;
+
+        MappedList(int size, RecordReader<T> reader) {
+            this.size = size;
+            this.reader = reader;
+        }
+
+        @Override
+        public T get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return reader.read(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Lista de vendedores mapeada que, además, lee el ID de un vendedor sin
+     * decodificar el resto del registro.
+     */
+    private static class MappedSalesmen extends MappedList<Salesman> {
+
+        private final ByteBuffer buffer;
+        private final int idsAt;
+
+        MappedSalesmen(int size, ByteBuffer buffer, int idsAt, StringColumn documentTypes, StringColumn names) {
+            super(size, i -> new Salesman(documentTypes.get(i), buffer.getLong(idsAt + 8 * i), names.get(i)));
+            this.buffer = buffer;
+            this.idsAt = idsAt;
+        }
+
+        long idAt(int index) {
+            return buffer.getLong(idsAt + 8 * Objects.checkIndex(index, size()));
+        }
+    }
+}
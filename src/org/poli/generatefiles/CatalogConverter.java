@@ -0,0 +1,67 @@
+package org.poli.generatefiles;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Convierte, una sola vez, los catálogos serializados con Java
+ * ({@code products.ser}, {@code salesmen.ser}) al formato de
+ * {@link BinaryCatalog} ({@code products.bin}, {@code salesmen.bin}).
+ *
+ * <p>
+ * La lectura de los {@code .ser} usa un filtro de deserialización que solo
+ * admite las clases esperadas.
+ * </p>
+ */
+public class CatalogConverter {
+
+    private static final String DATA_DIR = "data/";
+
+    /**
+     * Filtro de deserialización para los catálogos {@code .ser}.
+     */
+    public static final ObjectInputFilter SER_FILTER = ObjectInputFilter.Config.createFilter(
+            "maxdepth=4;java.util.ArrayList;java.lang.Object;org.poli.generatefiles.Product;"
+                    + "org.poli.generatefiles.Salesman;!*");
+
+    /**
+     * Convierte los catálogos del directorio {@code data/}, o del directorio
+     * indicado como primer argumento.
+     *
+     * @param args Directorio de datos opcional
+     */
+    public static void main(String[] args) {
+        Path dir = Paths.get(args.length > 0 ? args[0] : DATA_DIR);
+        try {
+            List<Product> products = readSer(dir.resolve("products.ser"));
+            BinaryCatalog.writeProducts(products, dir.resolve("products.bin"));
+            List<Salesman> salesmen = readSer(dir.resolve("salesmen.ser"));
+            BinaryCatalog.writeSalesmen(salesmen, dir.resolve("salesmen.bin"));
+            System.out.println("✅ Catálogos convertidos: " + products.size() + " productos, "
+                    + salesmen.size() + " vendedores.");
+        } catch (IOException | ClassNotFoundException e) {
+            System.err.println("❌ Error convirtiendo los catálogos: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Lee una lista serializada aplicando {@link #SER_FILTER}.
+     *
+     * @param <T> Tipo de los elementos
+     * @param path Archivo {@code .ser}
+     * @return Lista deserializada
+     * @throws IOException Si hay error de lectura o una clase no permitida
+     * @throws ClassNotFoundException Si falla la deserialización
+     */
+    public static <T> List<T> readSer(Path path) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            ois.setObjectInputFilter(SER_FILTER);
+            @SuppressWarnings("unchecked")
+            List<T> list = (List<T>) ois.readObject();
+            return list;
+        }
+    }
+}
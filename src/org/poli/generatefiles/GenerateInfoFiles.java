@@ -4,7 +4,7 @@ import java.io.*;
 import java.util.*;
 
 /**
- * Genera archivos CSV y archivos serializados (.ser) con información simulada
+ * Genera archivos CSV y catálogos binarios (.bin) con información simulada
  * de productos, vendedores y ventas.
  *
  * <p>
@@ -12,13 +12,19 @@ import java.util.*;
  * </p>
  *
  * <pre>
- * - products.csv     (ID, nombre y precio de productos)
- * - salesmen.csv     (Documento y nombre completo de los vendedores)
- * - sales_[ID].csv   (Ventas realizadas por cada vendedor)
- * - products.ser     (Lista serializada de objetos Product)
- * - salesmen.ser     (Lista serializada de objetos Salesman)
+ * - products.csv       (ID, nombre y precio de productos)
+ * - salesmen.csv       (Documento y nombre completo de los vendedores)
+ * - sales_[ID]_[N].csv (Ventas realizadas por cada vendedor)
+ * - products.bin       (Catálogo binario de productos, ver {@link BinaryCatalog})
+ * - salesmen.bin       (Catálogo binario de vendedores, ver {@link BinaryCatalog})
  * </pre>
  *
+ * <p>
+ * Las cantidades, la semilla y el número de hilos se configuran con las
+ * opciones de {@link GeneratorOptions}; sin argumentos se genera el conjunto
+ * pequeño de siempre.
+ * </p>
+ *
  * @author Poli
  * @version 2.0
  */
@@ -27,38 +33,23 @@ public class GenerateInfoFiles {
     private static final String DATA_DIR = "data/";
     private static final String VENDORS_FILE = DATA_DIR + "salesmen.csv";
     private static final String PRODUCTS_FILE = DATA_DIR + "products.csv";
-    private static final String VENDORS_SER = DATA_DIR + "salesmen.ser";
-    private static final String PRODUCTS_SER = DATA_DIR + "products.ser";
-
-    private static final String[] FIRST_NAMES = { "Carlos", "Maria", "Luis", "Andrea", "Pedro", "Sofia", "Alejandra",
-            "Jefferson", "Lorena", "Paola", "Diego", "Lucia", "Leidy", "Camila", "Juan", "Vanesa", "Clara" };
-    private static final String[] LAST_NAMES = { "Gomez", "Rodriguez", "Lopez", "Fernandez", "Martinez", "Fernandez",
-            "Martinez", "Torres", "Mendoza", "Jimenez", "Vargas", "Rios", "Coronado", "Roa", "Betancur" };
-    private static final String[] PRODUCT_NAMES = { "Laptop", "Mouse", "Teclado", "Monitor", "Impresora", "Celular",
-            "Tablet", "Auriculares", "GPS", "Televisor", "Control remoto", "Camara de seguridad" };
 
     private static final int PRODUCT_COUNT = 10;
-    private static final int SALESMAN_COUNT = 5;
     private static final Random RANDOM = new Random();
 
     public static void main(String[] args) {
         try {
-            createDirectory(DATA_DIR);
-
-            List<Product> products = createProductsFile(PRODUCT_COUNT);
-            serializeObject(products, PRODUCTS_SER);
+            GeneratorOptions options = GeneratorOptions.parse(args);
+            createDirectory(options.getDir());
 
-            List<Salesman> salesmen = createSalesManInfoFile(SALESMAN_COUNT);
-            serializeObject(salesmen, VENDORS_SER);
+            long start = System.nanoTime();
+            long salesFiles = new SalesDataGenerator(options).generate();
+            long millis = (System.nanoTime() - start) / 1_000_000;
 
-            for (Salesman s : salesmen) {
-                for (int i = 0; i < (int) (Math.random() * 3 + 1); i++) {
-                    createSalesMenFile(PRODUCT_COUNT, s.getId(), i + 1);
-                }
-            }
-
-            System.out.println("✅ Archivos generados y serializados exitosamente.");
-        } catch (IOException e) {
+            System.out.println("✅ Archivos y catálogos binarios generados exitosamente: " + options.getProducts()
+                    + " productos, " + options.getSalesmen() + " vendedores, " + salesFiles
+                    + " archivos de ventas (semilla " + options.getSeed() + ", " + millis + " ms).");
+        } catch (IOException | IllegalArgumentException e) {
             System.err.println("❌ Error generando archivos: " + e.getMessage());
         }
     }
@@ -81,12 +72,15 @@ public class GenerateInfoFiles {
 
     /**
      * Crea un archivo de vendedores con datos aleatorios.
-     * 
+     *
      * @param randomSalesCount Cantidad de ventas aleatorias a generar
      * @param id               ID único del vendedor
      * @param count            Número de vendedores a crear
      * @throws IOException Si ocurre un error al escribir el archivocls
+     * @deprecated Los archivos de ventas se generan con
+     * {@link SalesDataGenerator}
      */
+    @Deprecated
     public static void createSalesMenFile(int randomSalesCount, long id, int count) throws IOException {
         String filename = DATA_DIR + "sales_" + id + "_" + count + ".csv";
 
@@ -112,7 +106,9 @@ public class GenerateInfoFiles {
      * @param salesmanCount Número de vendedores a generar
      * @return Lista de IDs únicos generados
      * @throws IOException Si ocurre un error de escritura
+     * @deprecated Los vendedores se generan con {@link SalesDataGenerator}
      */
+    @Deprecated
     public static List<Salesman> createSalesManInfoFile(int salesmanCount) throws IOException {
         Set<Long> ids = new HashSet<>();
         List<Salesman> salesmen = new ArrayList<>();
@@ -126,8 +122,10 @@ public class GenerateInfoFiles {
                 } while (ids.contains(id));
                 ids.add(id);
 
-                String firstName = FIRST_NAMES[RANDOM.nextInt(FIRST_NAMES.length)];
-                String lastName = LAST_NAMES[RANDOM.nextInt(LAST_NAMES.length)];
+                String[] firstNames = SalesDataGenerator.FIRST_NAMES;
+                String[] lastNames = SalesDataGenerator.LAST_NAMES;
+                String firstName = firstNames[RANDOM.nextInt(firstNames.length)];
+                String lastName = lastNames[RANDOM.nextInt(lastNames.length)];
                 writer.write("CC;" + id + ";" + firstName + " " + lastName + "\n");
 
                 salesmen.add(new Salesman(firstName, id, lastName));
@@ -142,17 +140,20 @@ public class GenerateInfoFiles {
      * @param productCount Número de productos a generar
      * @return Lista de productos generados
      * @throws IOException Si ocurre un error de escritura
+     * @deprecated El catálogo se genera con {@link SalesDataGenerator}
      */
+    @Deprecated
     public static List<Product> createProductsFile(int productCount) throws IOException {
         List<Product> products = new ArrayList<>();
         try (BufferedWriter writer = new BufferedWriter(
                 new OutputStreamWriter(new FileOutputStream(PRODUCTS_FILE), "UTF-8"))) {
+            String[] productNames = SalesDataGenerator.PRODUCT_NAMES;
             Set<String> usedProductNames = new HashSet<>();
             for (int i = 1; i <= productCount; i++) {
                 String id = String.format("P%03d", i);
                 String name;
                 do {
-                    name = PRODUCT_NAMES[RANDOM.nextInt(PRODUCT_NAMES.length)];
+                    name = productNames[RANDOM.nextInt(productNames.length)];
                 } while (usedProductNames.contains(name));
                 usedProductNames.add(name);
                 int price = (RANDOM.nextInt(50) + 1) * 1000;
@@ -167,7 +168,10 @@ public class GenerateInfoFiles {
      * Genera un número de cédula aleatorio entre 8 y 10 dígitos.
      *
      * @return Número de identificación generado
+     * @deprecated {@link SalesDataGenerator} asigna IDs únicos por
+     * construcción
      */
+    @Deprecated
     public static long generateRandomID() {
         int digits = 8 + RANDOM.nextInt(3);
         long min = (long) Math.pow(10, digits - 1);
@@ -180,7 +184,9 @@ public class GenerateInfoFiles {
      *
      * @param obj  Objeto a serializar
      * @param path Ruta de archivo de salida
+     * @deprecated Los catálogos se escriben con {@link BinaryCatalog}
      */
+    @Deprecated
     public static void serializeObject(Object obj, String path) {
         try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(path))) {
             oos.writeObject(obj);
@@ -0,0 +1,163 @@
+package org.poli.generatefiles;
+
+import java.util.SplittableRandom;
+
+/**
+ * Opciones de línea de comandos para la generación de datos.
+ *
+ * <pre>
+ * --products N             Número de productos del catálogo (por defecto 10)
+ * --salesmen N             Número de vendedores (por defecto 5)
+ * --files-per-salesman N   Archivos de ventas por vendedor (por defecto, entre 1 y 3 al azar)
+ * --lines-per-file N       Líneas de venta por archivo (por defecto 10); un archivo no repite
+ *                          productos salvo que tenga más líneas que el catálogo
+ * --seed S                 Semilla; la misma semilla y opciones generan los mismos archivos
+ *                          sin importar el número de hilos (por defecto, una al azar)
+ * --threads N              Hilos de escritura (por defecto, los procesadores disponibles)
+ * --dir DIR                Directorio de salida (por defecto data/)
+ * </pre>
+ */
+public class GeneratorOptions {
+
+    private static final String DEFAULT_DIR = "data/";
+
+    private int products = 10;
+    private int salesmen = 5;
+    private int filesPerSalesman;
+    private int linesPerFile = 10;
+    private long seed = new SplittableRandom().nextLong();
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private String dir = DEFAULT_DIR;
+
+    /**
+     * Interpreta los argumentos de línea de comandos.
+     *
+     * @param args Argumentos recibidos por
+     * {@link GenerateInfoFiles#main(String[])}
+     * @return Opciones interpretadas
+     * @throws IllegalArgumentException Si algún argumento es inválido
+     */
+    public static GeneratorOptions parse(String[] args) {
+        GeneratorOptions options = new GeneratorOptions();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--products":
+                    options.products = parsePositive(args, ++i);
+                    break;
+                case "--salesmen":
+                    options.salesmen = parsePositive(args, ++i);
+                    break;
+                case "--files-per-salesman":
+                    options.filesPerSalesman = parsePositive(args, ++i);
+                    break;
+                case "--lines-per-file":
+                    options.linesPerFile = parsePositive(args, ++i);
+                    break;
+                case "--seed":
+                    options.seed = parseSeed(args, ++i);
+                    break;
+                case "--threads":
+                    options.threads = parsePositive(args, ++i);
+                    break;
+                case "--dir":
+                    options.dir = value(args, ++i);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Argumento desconocido: " + args[i]);
+            }
+        }
+        return options;
+    }
+
+    private static String value(String[] args, int i) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException("Falta el valor para " + args[i - 1]);
+        }
+        return args[i];
+    }
+
+    private static int parsePositive(String[] args, int i) {
+        String value = value(args, i);
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed > 0) {
+                return parsed;
+            }
+        } catch (NumberFormatException e) {
+            // se reporta abajo
+        }
+        throw new IllegalArgumentException("Valor inválido para " + args[i - 1] + ": " + value);
+    }
+
+    private static long parseSeed(String[] args, int i) {
+        String value = value(args, i);
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Valor inválido para " + args[i - 1] + ": " + value);
+        }
+    }
+
+    /**
+     * Obtiene el número de productos a generar.
+     *
+     * @return Cantidad de productos
+     */
+    public int getProducts() {
+        return products;
+    }
+
+    /**
+     * Obtiene el número de vendedores a generar.
+     *
+     * @return Cantidad de vendedores
+     */
+    public int getSalesmen() {
+        return salesmen;
+    }
+
+    /**
+     * Obtiene el número de archivos de ventas por vendedor.
+     *
+     * @return Archivos por vendedor, o 0 si se eligen al azar entre 1 y 3
+     */
+    public int getFilesPerSalesman() {
+        return filesPerSalesman;
+    }
+
+    /**
+     * Obtiene el número de líneas de venta por archivo.
+     *
+     * @return Líneas por archivo
+     */
+    public int getLinesPerFile() {
+        return linesPerFile;
+    }
+
+    /**
+     * Obtiene la semilla de la generación.
+     *
+     * @return Semilla
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Obtiene el número de hilos de escritura.
+     *
+     * @return Número de hilos
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Obtiene el directorio de salida.
+     *
+     * @return Directorio donde se escriben los archivos
+     */
+    public String getDir() {
+        return dir;
+    }
+}
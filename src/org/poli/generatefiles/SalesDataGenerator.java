@@ -0,0 +1,448 @@
+package org.poli.generatefiles;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Genera en paralelo el catálogo de productos, los vendedores y sus archivos
+ * de ventas según las {@link GeneratorOptions}.
+ *
+ * <p>
+ * El trabajo se divide en bloques fijos de productos y de vendedores. Cada
+ * bloque recibe su propio {@link SplittableRandom}, separado de la semilla en
+ * un orden fijo antes de repartir los bloques entre los hilos, de modo que la
+ * misma semilla produce los mismos archivos con cualquier número de hilos.
+ * </p>
+ *
+ * <p>
+ * Los IDs de vendedor son únicos por construcción: el rango de cédulas se
+ * divide en tantos tramos como vendedores y cada vendedor toma un valor al
+ * azar dentro de su tramo. Los nombres de producto salen de una permutación
+ * al azar de los nombres base y se repiten con un sufijo numérico cuando hay
+ * más productos que nombres.
+ * </p>
+ *
+ * <p>
+ * Como en el generador original, un archivo de ventas no repite productos
+ * mientras las líneas por archivo no superen el tamaño del catálogo; con los
+ * valores por defecto cada archivo trae cada producto una vez. Si se piden
+ * más líneas que productos, los productos se sortean con reemplazo.
+ * </p>
+ */
+public class SalesDataGenerator {
+
+    static final String[] FIRST_NAMES = { "Carlos", "Maria", "Luis", "Andrea", "Pedro", "Sofia", "Alejandra",
+            "Jefferson", "Lorena", "Paola", "Diego", "Lucia", "Leidy", "Camila", "Juan", "Vanesa", "Clara" };
+    static final String[] LAST_NAMES = { "Gomez", "Rodriguez", "Lopez", "Fernandez", "Martinez", "Fernandez",
+            "Martinez", "Torres", "Mendoza", "Jimenez", "Vargas", "Rios", "Coronado", "Roa", "Betancur" };
+    static final String[] PRODUCT_NAMES = { "Laptop", "Mouse", "Teclado", "Monitor", "Impresora", "Celular",
+            "Tablet", "Auriculares", "GPS", "Televisor", "Control remoto", "Camara de seguridad" };
+
+    private static final byte[][] FIRST_NAME_BYTES = utf8(FIRST_NAMES);
+    private static final byte[][] LAST_NAME_BYTES = utf8(LAST_NAMES);
+    private static final byte[] SALES_HEADER = "TipoDocumentoVendedor;IDVendedor\nCC;"
+            .getBytes(StandardCharsets.UTF_8);
+    private static final byte[] PRODUCTS_HEADER = "\nProductID;Quantity\n".getBytes(StandardCharsets.UTF_8);
+
+    private static final long MIN_ID = 10_000_000L;
+    private static final long MAX_ID = 9_999_999_999L;
+    private static final int CATALOG_CHUNK = 4096;
+    private static final int SALESMEN_PER_TASK = 64;
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final GeneratorOptions options;
+    private final Path dir;
+    private String[] productNames;
+    private byte[][] productNameBytes;
+
+    /**
+     * Crea un generador con las opciones dadas.
+     *
+     * @param options Cantidades, semilla, hilos y directorio de salida
+     */
+    public SalesDataGenerator(GeneratorOptions options) {
+        this.options = options;
+        this.dir = Paths.get(options.getDir());
+    }
+
+    /**
+     * Escribe {@code products.csv}, {@code salesmen.csv}, los catálogos
+     * binarios y los archivos {@code sales_[ID]_[N].csv}.
+     *
+     * @return Número de archivos de ventas generados
+     * @throws IOException Si ocurre un error de escritura
+     */
+    public long generate() throws IOException {
+        SplittableRandom root = new SplittableRandom(options.getSeed());
+        productNames = shuffle(PRODUCT_NAMES, root.split());
+        productNameBytes = utf8(productNames);
+        int productCount = options.getProducts();
+        int salesmanCount = options.getSalesmen();
+        SplittableRandom[] productRandoms = split(root, chunks(productCount, CATALOG_CHUNK));
+        SplittableRandom[] salesmanRandoms = split(root, chunks(salesmanCount, CATALOG_CHUNK));
+        SplittableRandom[] salesRandoms = split(root, chunks(salesmanCount, SALESMEN_PER_TASK));
+
+        int[] prices = new int[productCount];
+        long[] ids = new long[salesmanCount];
+        byte[] firstNames = new byte[salesmanCount];
+        byte[] lastNames = new byte[salesmanCount];
+        LongAdder salesFiles = new LongAdder();
+
+        ForkJoinPool pool = new ForkJoinPool(options.getThreads());
+        try {
+            writeOrdered(pool, dir.resolve("products.csv"), productRandoms.length,
+                    c -> productsChunk(productRandoms[c], c * CATALOG_CHUNK,
+                            Math.min(productCount, (c + 1) * CATALOG_CHUNK), prices));
+            writeOrdered(pool, dir.resolve("salesmen.csv"), salesmanRandoms.length,
+                    c -> salesmenChunk(salesmanRandoms[c], c * CATALOG_CHUNK,
+                            Math.min(salesmanCount, (c + 1) * CATALOG_CHUNK), ids, firstNames, lastNames));
+
+            BinaryCatalog.writeProducts(new GeneratedList<>(productCount,
+                    i -> new Product(productId(i), productName(i), prices[i])), dir.resolve("products.bin"));
+            BinaryCatalog.writeSalesmen(new GeneratedList<>(salesmanCount,
+                    i -> new Salesman(FIRST_NAMES[firstNames[i]], ids[i], LAST_NAMES[lastNames[i]])),
+                    dir.resolve("salesmen.bin"));
+
+            ThreadLocal<LineWriter> writers = ThreadLocal.withInitial(LineWriter::new);
+            ThreadLocal<ProductSampler> samplers = ThreadLocal.withInitial(() -> new ProductSampler(productCount));
+            parallel(pool, salesRandoms.length, c -> {
+                int to = Math.min(salesmanCount, (c + 1) * SALESMEN_PER_TASK);
+                salesFiles.add(salesChunk(salesRandoms[c], c * SALESMEN_PER_TASK, to, ids, writers.get(),
+                        samplers.get()));
+            });
+        } finally {
+            pool.shutdown();
+        }
+        return salesFiles.sum();
+    }
+
+    /**
+     * Genera los precios y las líneas CSV de un bloque de productos.
+     */
+    private byte[] productsChunk(SplittableRandom random, int from, int to, int[] prices) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream((to - from) * 32);
+        LineWriter writer = new LineWriter().open(bytes);
+        try {
+            for (int i = from; i < to; i++) {
+                prices[i] = (random.nextInt(50) + 1) * 1000;
+                writer.productId(i + 1).put(';').put(productNameBytes[i % productNames.length]);
+                if (i >= productNames.length) {
+                    writer.put(' ').number(i / productNames.length + 1);
+                }
+                writer.put(';').number(prices[i]).put('\n');
+            }
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Genera los IDs, los nombres y las líneas CSV de un bloque de
+     * vendedores.
+     */
+    private byte[] salesmenChunk(SplittableRandom random, int from, int to, long[] ids, byte[] firstNames,
+            byte[] lastNames) {
+        long span = (MAX_ID - MIN_ID + 1) / options.getSalesmen();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream((to - from) * 40);
+        LineWriter writer = new LineWriter().open(bytes);
+        try {
+            for (int i = from; i < to; i++) {
+                ids[i] = MIN_ID + i * span + random.nextLong(span);
+                firstNames[i] = (byte) random.nextInt(FIRST_NAMES.length);
+                lastNames[i] = (byte) random.nextInt(LAST_NAMES.length);
+                writer.put('C').put('C').put(';').number(ids[i]).put(';')
+                        .put(FIRST_NAME_BYTES[firstNames[i]]).put(' ').put(LAST_NAME_BYTES[lastNames[i]]).put('\n');
+            }
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Escribe los archivos de ventas de un bloque de vendedores.
+     *
+     * @return Número de archivos escritos
+     */
+    private int salesChunk(SplittableRandom random, int from, int to, long[] ids, LineWriter writer,
+            ProductSampler sampler) {
+        int lines = options.getLinesPerFile();
+        int written = 0;
+        for (int s = from; s < to; s++) {
+            int files = options.getFilesPerSalesman() > 0 ? options.getFilesPerSalesman() : random.nextInt(1, 4);
+            for (int f = 1; f <= files; f++) {
+                Path file = dir.resolve("sales_" + ids[s] + "_" + f + ".csv");
+                try (OutputStream out = Files.newOutputStream(file)) {
+                    writer.open(out).put(SALES_HEADER).number(ids[s]).put(PRODUCTS_HEADER);
+                    sampler.start(lines);
+                    for (int l = 0; l < lines; l++) {
+                        writer.productId(sampler.next(random) + 1).put(';').number(random.nextInt(1, 6))
+                                .put('\n');
+                    }
+                    sampler.finish();
+                    writer.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                written++;
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Genera en paralelo los bloques de un archivo y los escribe en orden.
+     * Solo se mantiene en memoria una ventana de bloques a la vez.
+     */
+    private void writeOrdered(ForkJoinPool pool, Path file, int chunks, IntFunction<byte[]> chunk)
+            throws IOException {
+        int window = options.getThreads() * CHUNKS_PER_THREAD;
+        try (OutputStream out = Files.newOutputStream(file)) {
+            for (int start = 0; start < chunks; start += window) {
+                int first = start;
+                byte[][] results = new byte[Math.min(window, chunks - start)][];
+                parallel(pool, results.length, k -> results[k] = chunk.apply(first + k));
+                for (byte[] result : results) {
+                    out.write(result);
+                }
+            }
+        }
+    }
+
+    private static void parallel(ForkJoinPool pool, int count, IntConsumer task) throws IOException {
+        try {
+            pool.submit(() -> IntStream.range(0, count).parallel().forEach(task)).join();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static SplittableRandom[] split(SplittableRandom root, int count) {
+        SplittableRandom[] randoms = new SplittableRandom[count];
+        for (int i = 0; i < count; i++) {
+            randoms[i] = root.split();
+        }
+        return randoms;
+    }
+
+    private static int chunks(int count, int chunkSize) {
+        return (int) (((long) count + chunkSize - 1) / chunkSize);
+    }
+
+    private static String productId(int index) {
+        return String.format("P%03d", index + 1);
+    }
+
+    private String productName(int index) {
+        String name = productNames[index % productNames.length];
+        return index < productNames.length ? name : name + " " + (index / productNames.length + 1);
+    }
+
+    private static String[] shuffle(String[] values, SplittableRandom random) {
+        String[] shuffled = values.clone();
+        for (int i = shuffled.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            String swap = shuffled[i];
+            shuffled[i] = shuffled[j];
+            shuffled[j] = swap;
+        }
+        return shuffled;
+    }
+
+    private static byte[][] utf8(String[] values) {
+        byte[][] bytes = new byte[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            bytes[i] = values[i].getBytes(StandardCharsets.UTF_8);
+        }
+        return bytes;
+    }
+
+    /**
+     * Escribe texto ASCII y números directamente en un búfer de bytes
+     * reutilizable, sin crear cadenas intermedias.
+     */
+    private static class LineWriter {
+
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private int position;
+        private OutputStream out;
+
+        LineWriter open(OutputStream out) {
+            this.out = out;
+            position = 0;
+            return this;
+        }
+
+        LineWriter put(char c) throws IOException {
+            ensure(1);
+            buffer[position++] = (byte) c;
+            return this;
+        }
+
+        LineWriter put(byte[] bytes) throws IOException {
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+            return this;
+        }
+
+        LineWriter number(long value) throws IOException {
+            ensure(20);
+            int end = position + digits(value);
+            for (int i = end - 1; i >= position; i--) {
+                buffer[i] = (byte) ('0' + value % 10);
+                value /= 10;
+            }
+            position = end;
+            return this;
+        }
+
+        /**
+         * Escribe un ID de producto con formato {@code P%03d}.
+         */
+        LineWriter productId(int number) throws IOException {
+            put('P');
+            for (int d = digits(number); d < 3; d++) {
+                put('0');
+            }
+            return number(number);
+        }
+
+        void flush() throws IOException {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+
+        private void ensure(int length) throws IOException {
+            if (position + length > buffer.length) {
+                flush();
+            }
+        }
+
+        private static int digits(long value) {
+            int digits = 1;
+            while (value >= 10) {
+                value /= 10;
+                digits++;
+            }
+            return digits;
+        }
+    }
+
+    /**
+     * Sortea las posiciones de producto de un archivo de ventas sin
+     * repetirlas, mientras el archivo no tenga más líneas que productos el
+     * catálogo. Si se pide a lo sumo la mitad del catálogo, los repetidos se
+     * descartan con un {@link BitSet}; si no, se hace un Fisher-Yates parcial
+     * sobre una permutación que se conserva entre archivos (sigue siendo una
+     * permutación, por lo que no hace falta reiniciarla).
+     */
+    private static class ProductSampler {
+
+        private final int products;
+        private BitSet used;
+        private int[] permutation;
+        private int[] drawn = new int[64];
+        private int count;
+        private boolean distinct;
+        private boolean byPermutation;
+
+        ProductSampler(int products) {
+            this.products = products;
+        }
+
+        void start(int lines) {
+            count = 0;
+            distinct = lines <= products;
+            byPermutation = distinct && 2L * lines > products;
+            if (byPermutation && permutation == null) {
+                permutation = new int[products];
+                for (int i = 0; i < products; i++) {
+                    permutation[i] = i;
+                }
+            } else if (distinct && !byPermutation && used == null) {
+                used = new BitSet(products);
+            }
+        }
+
+        int next(SplittableRandom random) {
+            if (!distinct) {
+                return random.nextInt(products);
+            }
+            if (byPermutation) {
+                int j = count + random.nextInt(products - count);
+                int product = permutation[j];
+                permutation[j] = permutation[count];
+                permutation[count++] = product;
+                return product;
+            }
+            int product;
+            do {
+                product = random.nextInt(products);
+            } while (used.get(product));
+            used.set(product);
+            if (count == drawn.length) {
+                drawn = Arrays.copyOf(drawn, count * 2);
+            }
+            drawn[count++] = product;
+            return product;
+        }
+
+        void finish() {
+            if (distinct && !byPermutation) {
+                for (int i = 0; i < count; i++) {
+                    used.clear(drawn[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Lista de solo lectura que construye cada elemento al pedirlo, para
+     * escribir catálogos grandes sin mantener todos los objetos en memoria.
+     */
+    private static class GeneratedList<T> extends AbstractList<T> implements RandomAccess {
+
+        private final int size;
+        private final IntFunction<T> element;
+
+        GeneratedList(int size, IntFunction<T> element) {
+            this.size = size;
+            this.element = element;
+        }
+
+        @Override
+        public T get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return element.apply(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
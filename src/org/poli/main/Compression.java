@@ -0,0 +1,128 @@
+package org.poli.main;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Lectura transparente de archivos comprimidos con gzip. Los reportes
+ * comprimidos los escribe {@link ReportWriter}.
+ *
+ * <p>
+ * El formato se reconoce por la extensión {@code .gz} o, si no la tiene, por
+ * los primeros bytes del archivo. gzip se lee con {@link java.util.zip},
+ * incluidos los archivos con varios miembros concatenados.
+ * </p>
+ */
+public final class Compression {
+
+    /**
+     * Extensión de los archivos gzip.
+     */
+    public static final String GZIP_SUFFIX = ".gz";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAGIC_LENGTH = 2;
+
+    /**
+     * Formato de compresión de un archivo.
+     */
+    public enum Format {
+        NONE, GZIP
+    }
+
+    private Compression() {
+    }
+
+    /**
+     * Reconoce el formato de un archivo por su extensión o, si no la tiene,
+     * por sus primeros bytes.
+     *
+     * @param file Archivo a revisar
+     * @return Formato de compresión
+     * @throws IOException Si no se puede leer el archivo
+     */
+    public static Format detect(Path file) throws IOException {
+        Format format = ofName(file.getFileName().toString());
+        if (format != Format.NONE) {
+            return format;
+        }
+        try (InputStream in = Files.newInputStream(file)) {
+            return ofMagic(in.readNBytes(MAGIC_LENGTH));
+        }
+    }
+
+    /**
+     * Reconoce el formato de un archivo solo por su extensión.
+     *
+     * @param fileName Nombre del archivo
+     * @return Formato de compresión, {@link Format#NONE} si la extensión no
+     * es de un formato comprimido
+     */
+    public static Format ofName(String fileName) {
+        if (fileName.endsWith(GZIP_SUFFIX)) {
+            return Format.GZIP;
+        }
+        return Format.NONE;
+    }
+
+    /**
+     * Quita la extensión de compresión de un nombre de archivo.
+     *
+     * @param fileName Nombre del archivo
+     * @return Nombre sin {@code .gz}
+     */
+    public static String stripSuffix(String fileName) {
+        return ofName(fileName) == Format.GZIP
+                ? fileName.substring(0, fileName.length() - GZIP_SUFFIX.length())
+                : fileName;
+    }
+
+    private static Format ofMagic(byte[] head) {
+        if (head.length >= 2 && (head[0] & 0xff) == 0x1f && (head[1] & 0xff) == 0x8b) {
+            return Format.GZIP;
+        }
+        return Format.NONE;
+    }
+
+    /**
+     * Abre un archivo para lectura, descomprimiéndolo si hace falta.
+     *
+     * @param file Archivo a leer
+     * @return Flujo con el contenido sin comprimir
+     * @throws IOException Si no se puede abrir el archivo
+     */
+    public static InputStream open(Path file) throws IOException {
+        return decompress(Files.newInputStream(file), file);
+    }
+
+    /**
+     * Descomprime un flujo ya abierto si sus primeros bytes, o la extensión
+     * del archivo, corresponden a un formato comprimido. Sirve para calcular
+     * sumas de verificación sobre los bytes del disco y leer a la vez el
+     * contenido.
+     *
+     * @param in Flujo con los bytes del archivo; se cierra si falla
+     * @param file Archivo de origen, para reconocer su extensión
+     * @return Flujo con el contenido sin comprimir
+     * @throws IOException Si no se puede leer
+     */
+    public static InputStream decompress(InputStream in, Path file) throws IOException {
+        try {
+            BufferedInputStream buffered = new BufferedInputStream(in, BUFFER_SIZE);
+            Format format = ofName(file.getFileName().toString());
+            if (format == Format.NONE) {
+                buffered.mark(MAGIC_LENGTH);
+                format = ofMagic(buffered.readNBytes(MAGIC_LENGTH));
+                buffered.reset();
+            }
+            return format == Format.GZIP ? new GZIPInputStream(buffered, BUFFER_SIZE) : buffered;
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+}
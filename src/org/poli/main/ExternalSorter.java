@@ -0,0 +1,301 @@
+package org.poli.main;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Ordenamiento externo con memoria acotada. Los elementos se acumulan hasta
+ * el presupuesto dado; al alcanzarlo se ordenan y se escriben como una
+ * corrida en un archivo temporal. Al recorrer el resultado, las corridas se
+ * combinan con una mezcla de k vías, de modo que el tamaño del reporte queda
+ * limitado por el disco y no por el heap.
+ *
+ * <p>
+ * El orden es estable: en empates la mezcla prefiere la corrida anterior, y
+ * las corridas se escriben en el orden en que llegan los elementos. Si hay
+ * más de {@value #MAX_FAN_IN} corridas se mezclan primero por grupos
+ * consecutivos.
+ * </p>
+ *
+ * <p>
+ * Si nunca se supera el presupuesto el ordenamiento ocurre en memoria, sin
+ * archivos temporales. El resultado se puede recorrer una sola vez.
+ * </p>
+ *
+ * @param <T> Tipo de los elementos
+ */
+public class ExternalSorter<T> implements Iterable<T>, Closeable {
+
+    /**
+     * Escribe y lee un elemento en las corridas temporales.
+     *
+     * @param <T> Tipo de los elementos
+     */
+    public interface Codec<T> {
+
+        /**
+         * Escribe un elemento.
+         *
+         * @param out Salida de la corrida
+         * @param value Elemento a escribir
+         * @throws IOException Si ocurre un error de escritura
+         */
+        void write(DataOutput out, T value) throws IOException;
+
+        /**
+         * Lee un elemento escrito con {@link #write(DataOutput, Object)}.
+         *
+         * @param in Entrada de la corrida
+         * @return Elemento leído
+         * @throws IOException Si ocurre un error de lectura
+         */
+        T read(DataInput in) throws IOException;
+    }
+
+    private static final int MAX_FAN_IN = 64;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Comparator<T> order;
+    private final Codec<T> codec;
+    private final int memoryBudget;
+    private final Path tempDir;
+    private final List<T> buffer = new ArrayList<>();
+    private final List<Run> runs = new ArrayList<>();
+    private final List<Closeable> open = new ArrayList<>();
+    private boolean iterated;
+
+    /**
+     * Crea un ordenamiento externo.
+     *
+     * @param order Orden del resultado
+     * @param codec Formato de los elementos en las corridas
+     * @param memoryBudget Número máximo de elementos en memoria
+     * @param tempDir Directorio para las corridas temporales
+     */
+    public ExternalSorter(Comparator<T> order, Codec<T> codec, int memoryBudget, Path tempDir) {
+        this.order = order;
+        this.codec = codec;
+        this.memoryBudget = Math.max(1, memoryBudget);
+        this.tempDir = tempDir;
+    }
+
+    /**
+     * Agrega un elemento, escribiendo una corrida si se alcanza el
+     * presupuesto.
+     *
+     * @param value Elemento a ordenar
+     * @throws IOException Si no se puede escribir la corrida
+     */
+    public void add(T value) throws IOException {
+        buffer.add(value);
+        if (buffer.size() >= memoryBudget) {
+            spill();
+        }
+    }
+
+    /**
+     * Obtiene el número de corridas escritas en disco.
+     *
+     * @return Corridas temporales
+     */
+    public int getSpilledRuns() {
+        return runs.size();
+    }
+
+    /**
+     * Recorre los elementos en orden. Si hubo corridas en disco se mezclan
+     * al avanzar; un error de lectura se propaga como
+     * {@link UncheckedIOException}.
+     *
+     * @return Iterador sobre el resultado ordenado
+     * @throws IllegalStateException Si el resultado ya se recorrió
+     */
+    @Override
+    public Iterator<T> iterator() {
+        if (iterated) {
+            throw new IllegalStateException("El resultado ya se recorrió");
+        }
+        iterated = true;
+        if (runs.isEmpty()) {
+            buffer.sort(order);
+            return Collections.unmodifiableList(buffer).iterator();
+        }
+        try {
+            if (!buffer.isEmpty()) {
+                spill();
+            }
+            while (runs.size() > MAX_FAN_IN) {
+                mergePass();
+            }
+            return new MergeIterator(runs);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Cierra las corridas abiertas y borra los archivos temporales.
+     *
+     * @throws IOException Si no se puede borrar algún archivo
+     */
+    @Override
+    public void close() throws IOException {
+        for (Closeable closeable : new ArrayList<>(open)) {
+            closeable.close();
+        }
+        open.clear();
+        for (Run run : runs) {
+            Files.deleteIfExists(run.path);
+        }
+        runs.clear();
+        buffer.clear();
+    }
+
+    private void spill() throws IOException {
+        buffer.sort(order);
+        runs.add(writeRun(buffer.iterator(), buffer.size()));
+        buffer.clear();
+    }
+
+    /**
+     * Mezcla las corridas por grupos consecutivos de {@value #MAX_FAN_IN},
+     * conservando su orden relativo.
+     */
+    private void mergePass() throws IOException {
+        List<Run> merged = new ArrayList<>();
+        for (int from = 0; from < runs.size(); from += MAX_FAN_IN) {
+            List<Run> group = runs.subList(from, Math.min(runs.size(), from + MAX_FAN_IN));
+            long count = 0;
+            for (Run run : group) {
+                count += run.count;
+            }
+            MergeIterator merge = new MergeIterator(group);
+            try {
+                merged.add(writeRun(merge, count));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                merge.close();
+            }
+            for (Run run : group) {
+                Files.delete(run.path);
+            }
+        }
+        runs.clear();
+        runs.addAll(merged);
+    }
+
+    private Run writeRun(Iterator<T> values, long count) throws IOException {
+        Path path = Files.createTempFile(tempDir, "sort-run-", ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(path), BUFFER_SIZE))) {
+            while (values.hasNext()) {
+                codec.write(out, values.next());
+            }
+        } catch (IOException | UncheckedIOException e) {
+            Files.deleteIfExists(path);
+            throw e;
+        }
+        return new Run(path, count);
+    }
+
+    /**
+     * Corrida ordenada escrita en disco.
+     */
+    private static class Run {
+
+        final Path path;
+        final long count;
+
+        Run(Path path, long count) {
+            this.path = path;
+            this.count = count;
+        }
+    }
+
+    /**
+     * Siguiente elemento de una corrida durante la mezcla.
+     */
+    private class Head {
+
+        final int run;
+        final DataInputStream in;
+        long remaining;
+        T value;
+
+        Head(int run, DataInputStream in, long remaining) {
+            this.run = run;
+            this.in = in;
+            this.remaining = remaining;
+        }
+
+        boolean advance() throws IOException {
+            if (remaining == 0) {
+                return false;
+            }
+            value = codec.read(in);
+            remaining--;
+            return true;
+        }
+    }
+
+    /**
+     * Mezcla de k vías sobre un montículo con la cabeza de cada corrida. Los
+     * empates se resuelven por la posición de la corrida.
+     */
+    private class MergeIterator implements Iterator<T>, Closeable {
+
+        private final PriorityQueue<Head> heads;
+        private final List<DataInputStream> inputs = new ArrayList<>();
+
+        MergeIterator(List<Run> runs) throws IOException {
+            heads = new PriorityQueue<>(Math.max(1, runs.size()), (a, b) -> {
+                int cmp = order.compare(a.value, b.value);
+                return cmp != 0 ? cmp : Integer.compare(a.run, b.run);
+            });
+            open.add(this);
+            for (int i = 0; i < runs.size(); i++) {
+                DataInputStream in = new DataInputStream(
+                        new BufferedInputStream(Files.newInputStream(runs.get(i).path), BUFFER_SIZE));
+                inputs.add(in);
+                Head head = new Head(i, in, runs.get(i).count);
+                if (head.advance()) {
+                    heads.add(head);
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public T next() {
+            Head head = heads.poll();
+            if (head == null) {
+                throw new NoSuchElementException();
+            }
+            T value = head.value;
+            try {
+                if (head.advance()) {
+                    heads.add(head);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return value;
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (DataInputStream in : inputs) {
+                in.close();
+            }
+            inputs.clear();
+            open.remove(this);
+        }
+    }
+}
@@ -0,0 +1,382 @@
+package org.poli.main;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import org.poli.generatefiles.BinaryCatalog;
+import org.poli.generatefiles.Salesman;
+
+/**
+ * Agregación incremental apoyada en un {@link SalesCheckpoint}. Solo se
+ * interpretan los archivos de ventas nuevos o modificados desde la ejecución
+ * anterior; los eliminados se restan de los totales guardados y el resto se
+ * reutiliza sin leerlo.
+ *
+ * <p>
+ * Un archivo se considera sin cambios si conserva tamaño y fecha de
+ * modificación. Si solo cambió la fecha, se compara su CRC32 antes de volver
+ * a interpretarlo.
+ * </p>
+ *
+ * <p>
+ * El rango de cada vendedor en un segmento compactado ({@link SalesSegment})
+ * se registra en el punto de control como un archivo más, con nombre
+ * {@code <segmento>#<id>}.
+ * </p>
+ *
+ * <p>
+ * El CRC32 de un archivo comprimido se calcula sobre sus bytes comprimidos,
+ * los mismos que se comparan al revisar si cambió.
+ * </p>
+ */
+public class IncrementalAggregator {
+
+    private final ProductCatalog catalog;
+    private final int threads;
+    private final PipelineMetrics metrics;
+    private final boolean cube;
+
+    /**
+     * Crea un agregador incremental.
+     *
+     * @param catalog Catálogo de productos con sus precios
+     * @param threads Número de hilos para los archivos a reprocesar
+     */
+    public IncrementalAggregator(ProductCatalog catalog, int threads) {
+        this(catalog, threads, new PipelineMetrics());
+    }
+
+    /**
+     * Crea un agregador incremental que registra en las métricas dadas los
+     * archivos que vuelve a interpretar.
+     *
+     * @param catalog Catálogo de productos con sus precios
+     * @param threads Número de hilos para los archivos a reprocesar
+     * @param metrics Métricas de la ejecución
+     */
+    public IncrementalAggregator(ProductCatalog catalog, int threads, PipelineMetrics metrics) {
+        this(catalog, threads, metrics, false);
+    }
+
+    /**
+     * Crea un agregador incremental que, si se indica, reconstruye también el
+     * cubo vendedor × producto a partir de los agregados por archivo del
+     * punto de control.
+     *
+     * @param catalog Catálogo de productos con sus precios
+     * @param threads Número de hilos para los archivos a reprocesar
+     * @param metrics Métricas de la ejecución
+     * @param cube {@code true} para construir el cubo (ver
+     * {@link SalesTotals#getCube()})
+     */
+    public IncrementalAggregator(ProductCatalog catalog, int threads, PipelineMetrics metrics, boolean cube) {
+        this.catalog = catalog;
+        this.threads = Math.max(1, threads);
+        this.metrics = metrics;
+        this.cube = cube;
+    }
+
+    /**
+     * Actualiza el punto de control con los archivos actuales y devuelve los
+     * totales resultantes.
+     *
+     * @param salesmen Vendedores a agregar
+     * @param index Índice de archivos de ventas por vendedor
+     * @param checkpointFile Archivo del punto de control
+     * @return Totales por vendedor y por producto
+     * @throws IOException Si no se puede leer o guardar el punto de control
+     */
+    public SalesTotals aggregate(List<Salesman> salesmen, SalesFileIndex index, Path checkpointFile)
+            throws IOException {
+        SalesCheckpoint checkpoint = SalesCheckpoint.load(checkpointFile, catalog);
+        SalesTotals totals = update(checkpoint, salesmen, index);
+        checkpoint.save(checkpointFile);
+        return totals;
+    }
+
+    /**
+     * Actualiza en memoria un punto de control con los archivos actuales y
+     * devuelve los totales resultantes.
+     *
+     * @param checkpoint Punto de control a actualizar
+     * @param salesmen Vendedores a agregar
+     * @param index Índice de archivos de ventas por vendedor
+     * @return Totales por vendedor y por producto
+     */
+    public SalesTotals update(SalesCheckpoint checkpoint, List<Salesman> salesmen, SalesFileIndex index) {
+        Set<String> current = new HashSet<>();
+        List<PendingFile> pending = new ArrayList<>();
+
+        Set<String> ids = new HashSet<>();
+        for (int i = 0; i < salesmen.size(); i++) {
+            String id = String.valueOf(BinaryCatalog.salesmanId(salesmen, i));
+            ids.add(id);
+            for (Path salesFile : index.filesFor(id)) {
+                check(checkpoint, current, pending, new PendingFile(salesFile.getFileName().toString(), salesFile,
+                        null, id, index.sizeOf(salesFile), index.lastModifiedOf(salesFile)));
+            }
+        }
+        for (SalesSegment segment : index.segments()) {
+            for (String id : segment.salesmanIds()) {
+                if (ids.contains(id)) {
+                    check(checkpoint, current, pending, new PendingFile(segment.getPath().getFileName() + "#" + id,
+                            segment.getPath(), segment, id, segment.sizeOf(id),
+                            index.lastModifiedOf(segment.getPath())));
+                }
+            }
+        }
+
+        List<String> removed = new ArrayList<>();
+        for (String name : checkpoint.fileNames()) {
+            if (!current.contains(name)) {
+                removed.add(name);
+            }
+        }
+        removed.forEach(checkpoint::remove);
+
+        for (PendingFile file : process(pending)) {
+            if (file.result != null) {
+                checkpoint.add(file.name, file.result);
+            } else {
+                checkpoint.remove(file.name);
+            }
+        }
+
+        System.out.println("ℹ️ Modo incremental: " + pending.size() + " archivos nuevos o modificados, "
+                + removed.size() + " eliminados, " + (current.size() - pending.size()) + " sin cambios.");
+        SalesTotals totals = checkpoint.toTotals(salesmen, catalog);
+        if (cube) {
+            totals.setCube(checkpoint.toCube(salesmen, catalog));
+        }
+        return totals;
+    }
+
+    /**
+     * Registra un archivo como actual y lo marca como pendiente si es nuevo
+     * o cambió desde el punto de control.
+     */
+    private static void check(SalesCheckpoint checkpoint, Set<String> current, List<PendingFile> pending,
+            PendingFile file) {
+        current.add(file.name);
+        SalesCheckpoint.FileEntry entry = checkpoint.get(file.name);
+        boolean sameFile = entry != null && entry.size == file.size && entry.salesmanId.equals(file.salesmanId);
+        if (sameFile && entry.lastModified == file.lastModified) {
+            return;
+        }
+        file.previous = sameFile ? entry : null;
+        pending.add(file);
+    }
+
+    /**
+     * Procesa los archivos pendientes, en paralelo si hay más de un hilo.
+     *
+     * @param pending Archivos nuevos o modificados
+     * @return Los mismos archivos con su resultado asignado
+     */
+    private List<PendingFile> process(List<PendingFile> pending) {
+        ThreadLocal<FileCollector> collectors = ThreadLocal.withInitial(FileCollector::new);
+        if (threads == 1 || pending.size() < 2) {
+            pending.forEach(file -> file.result = collectors.get().process(file));
+            return pending;
+        }
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.submit(() -> pending.parallelStream()
+                    .forEach(file -> file.result = collectors.get().process(file))).join();
+        } finally {
+            pool.shutdown();
+        }
+        return pending;
+    }
+
+    /**
+     * Archivo de ventas, o rango de un vendedor en un segmento, que debe
+     * revisarse en esta ejecución.
+     */
+    private static class PendingFile {
+
+        final String name;
+        final Path path;
+        final SalesSegment segment;
+        final String salesmanId;
+        final long size;
+        final long lastModified;
+        SalesCheckpoint.FileEntry previous;
+        SalesCheckpoint.FileEntry result;
+
+        PendingFile(String name, Path path, SalesSegment segment, String salesmanId, long size,
+                long lastModified) {
+            this.name = name;
+            this.path = path;
+            this.segment = segment;
+            this.salesmanId = salesmanId;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+    }
+
+    /**
+     * Acumula el agregado parcial de un archivo a la vez. Reutiliza arreglos
+     * del tamaño del catálogo y solo reinicia las posiciones usadas.
+     */
+    private class FileCollector implements SalesLineParser.LineHandler {
+
+        private final SalesLineParser parser = new SalesLineParser(catalog);
+        private final long[] quantities = new long[catalog.size()];
+        private final long[] lines = new long[catalog.size()];
+        private int[] touched = new int[16];
+        private int touchedCount;
+        private final Map<String, long[]> unknown = new LinkedHashMap<>();
+        private long revenue;
+        private BigInteger revenueOverflow;
+        private long unknownLines;
+        private long reportedLines;
+        private long reportedMalformed;
+
+        /**
+         * Revisa un archivo pendiente.
+         *
+         * @param file Archivo a revisar
+         * @return Agregado parcial del archivo, o {@code null} si no se pudo
+         * leer
+         */
+        SalesCheckpoint.FileEntry process(PendingFile file) {
+            if (file.previous != null && file.previous.crc == crcOf(file)) {
+                return file.previous.withLastModified(file.lastModified);
+            }
+
+            long start = System.nanoTime();
+            CRC32 crc = new CRC32();
+            if (file.segment != null) {
+                for (ByteBuffer region : file.segment.regions(file.salesmanId, 1)) {
+                    crc.update(region.duplicate());
+                    parser.parse(region, true, this);
+                }
+                SalesCheckpoint.FileEntry entry = toEntry(file, crc.getValue());
+                report(file, start);
+                return entry;
+            }
+            try (InputStream in = Compression.decompress(
+                    new CheckedInputStream(new FileInputStream(file.path.toFile()), crc), file.path)) {
+                parser.parse(in, this);
+                // El CRC cubre los bytes del disco: se consume lo que el
+                // descompresor haya dejado sin leer tras el último miembro.
+                in.transferTo(OutputStream.nullOutputStream());
+                return toEntry(file, crc.getValue());
+            } catch (IOException e) {
+                System.err.println("⚠️ No se pudo leer el archivo " + file.path + ": " + e.getMessage());
+                return null;
+            } finally {
+                report(file, start);
+            }
+        }
+
+        /**
+         * Registra en las métricas el archivo revisado y reinicia el
+         * acumulador.
+         */
+        private void report(PendingFile file, long start) {
+            metrics.record(PipelineMetrics.Stage.PARSE, start);
+            metrics.addFile(file.size);
+            metrics.addLines(parser.getLines() - reportedLines, parser.getMalformedLines() - reportedMalformed,
+                    unknownLines);
+            reportedLines = parser.getLines();
+            reportedMalformed = parser.getMalformedLines();
+            reset();
+        }
+
+        @Override
+        public void onProduct(int productIndex, int quantity) {
+            if (lines[productIndex]++ == 0) {
+                if (touchedCount == touched.length) {
+                    touched = Arrays.copyOf(touched, touchedCount * 2);
+                }
+                touched[touchedCount++] = productIndex;
+            }
+            quantities[productIndex] += quantity;
+            long amount = Math.multiplyExact((long) catalog.getPrice(productIndex), quantity);
+            try {
+                revenue = Math.addExact(revenue, amount);
+            } catch (ArithmeticException e) {
+                BigInteger overflow = revenueOverflow == null ? BigInteger.ZERO : revenueOverflow;
+                revenueOverflow = overflow.add(BigInteger.valueOf(revenue)).add(BigInteger.valueOf(amount));
+                revenue = 0;
+            }
+        }
+
+        @Override
+        public void onUnknownProduct(String productId, int quantity) {
+            long[] totals = unknown.computeIfAbsent(productId, k -> new long[2]);
+            totals[0] += quantity;
+            totals[1]++;
+            unknownLines++;
+        }
+
+        private SalesCheckpoint.FileEntry toEntry(PendingFile file, long crc) {
+            int count = touchedCount + unknown.size();
+            int[] productIndexes = new int[count];
+            String[] unknownIds = new String[count];
+            long[] entryQuantities = new long[count];
+            long[] entryLines = new long[count];
+            for (int i = 0; i < touchedCount; i++) {
+                productIndexes[i] = touched[i];
+                entryQuantities[i] = quantities[touched[i]];
+                entryLines[i] = lines[touched[i]];
+            }
+            int i = touchedCount;
+            for (Map.Entry<String, long[]> entry : unknown.entrySet()) {
+                productIndexes[i] = -1;
+                unknownIds[i] = entry.getKey();
+                entryQuantities[i] = entry.getValue()[0];
+                entryLines[i] = entry.getValue()[1];
+                i++;
+            }
+            BigInteger total = BigInteger.valueOf(revenue);
+            if (revenueOverflow != null) {
+                total = total.add(revenueOverflow);
+            }
+            return new SalesCheckpoint.FileEntry(file.size, file.lastModified, crc, file.salesmanId, total,
+                    productIndexes, unknownIds, entryQuantities, entryLines);
+        }
+
+        private void reset() {
+            for (int i = 0; i < touchedCount; i++) {
+                quantities[touched[i]] = 0;
+                lines[touched[i]] = 0;
+            }
+            touchedCount = 0;
+            unknown.clear();
+            revenue = 0;
+            revenueOverflow = null;
+            unknownLines = 0;
+        }
+
+        private long crcOf(PendingFile file) {
+            CRC32 crc = new CRC32();
+            if (file.segment != null) {
+                for (ByteBuffer region : file.segment.regions(file.salesmanId, 1)) {
+                    crc.update(region.duplicate());
+                }
+                return crc.getValue();
+            }
+            byte[] buffer = new byte[64 * 1024];
+            try (InputStream in = new FileInputStream(file.path.toFile())) {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    crc.update(buffer, 0, read);
+                }
+                return crc.getValue();
+            } catch (IOException e) {
+                return -1;
+            }
+        }
+    }
+}
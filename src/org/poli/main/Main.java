@@ -1,7 +1,12 @@
 package org.poli.main;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
+import org.poli.generatefiles.BinaryCatalog;
+import org.poli.generatefiles.CatalogConverter;
 import org.poli.generatefiles.Product;
 import org.poli.generatefiles.Salesman;
 
@@ -14,233 +19,313 @@ public class Main {
     private static final String DATA_DIR = "data/";
     private static final String VENDORS_SER = DATA_DIR + "salesmen.ser";
     private static final String PRODUCTS_SER = DATA_DIR + "products.ser";
+    private static final String VENDORS_BIN = DATA_DIR + "salesmen.bin";
+    private static final String PRODUCTS_BIN = DATA_DIR + "products.bin";
     private static final String SALES_REPORT_FILE = DATA_DIR + "sales_report.csv";
     private static final String PRODUCTS_REPORT_FILE = DATA_DIR + "products_report.csv";
+    private static final String SALES_MATRIX_FILE = DATA_DIR + "sales_matrix.csv";
+    private static final String CHECKPOINT_NAME = "report_checkpoint";
+    private static final String METRICS_JSON_FILE = DATA_DIR + "metrics.json";
+    private static final String METRICS_PROM_FILE = DATA_DIR + "metrics.prom";
 
     /**
      * Método principal que inicia la generación de reportes.
      *
-     * @param args Argumentos de línea de comandos (no utilizados)
+     * @param args Argumentos de línea de comandos (ver {@link ReportOptions})
      */
     public static void main(String[] args) {
+        PipelineMetrics metrics = new PipelineMetrics();
+        metrics.registerMBean();
         try {
-            generateSalesReport();
-            generateSortedProductSales();
+            ReportOptions options = ReportOptions.parse(args);
+            long start = System.nanoTime();
+            ProductCatalog catalog = loadProductCatalog();
+            List<Salesman> salesmen = loadSalesmen();
+            start = metrics.record(PipelineMetrics.Stage.CATALOG_LOAD, start);
+            if (options.isWatch()) {
+                ReportDaemon daemon = new ReportDaemon(catalog, salesmen, options, metrics, Paths.get(DATA_DIR),
+                        options.isIncremental() ? checkpointFile(options) : null);
+                if (options.getHttpPort() > 0) {
+                    daemon.addListener(startServer(options)::update);
+                }
+                Runtime.getRuntime().addShutdownHook(new Thread(daemon::close));
+                daemon.run();
+                return;
+            }
+            if (!options.getMergeFiles().isEmpty()) {
+                SalesTotals totals = PartialAggregate.merge(options.getMergeFiles(), catalog, salesmen, metrics);
+                metrics.record(PipelineMetrics.Stage.AGGREGATE, start);
+                System.out.println("ℹ️ " + options.getMergeFiles().size() + " agregados parciales combinados.");
+                generateReports(totals, options, metrics);
+                return;
+            }
+            SalesFileIndex index = SalesFileIndex.scan(Paths.get(DATA_DIR));
+            if (options.getShardCount() > 1) {
+                index = index.shard(options.getShard(), options.getShardCount());
+            }
+            start = metrics.record(PipelineMetrics.Stage.SCAN, start);
+            SalesTotals totals;
+            if (options.isIncremental()) {
+                totals = new IncrementalAggregator(catalog, options.getThreads(), metrics, options.isMatrix())
+                        .aggregate(salesmen, index, checkpointFile(options));
+            } else if (options.isPipeline()) {
+                totals = new PipelinedAggregator(catalog, options.getThreads(), options.getReaders(), metrics,
+                        options.isMatrix()).aggregate(salesmen, index);
+            } else {
+                totals = new SalesAggregator(catalog, options.getThreads(), options.getMmapThreshold(), metrics,
+                        options.isMatrix()).aggregate(salesmen, index);
+            }
+            metrics.record(PipelineMetrics.Stage.AGGREGATE, start);
+            if (options.getPartialFile() != null) {
+                PartialAggregate.write(totals, metrics, options.getPartialFile());
+                System.out.println("✅ Agregado parcial de " + metrics.getFiles() + " archivos generado en: "
+                        + options.getPartialFile());
+                return;
+            }
+            generateReports(totals, options, metrics);
         } catch (Exception e) {
             System.err.println("❌ Error al generar los reportes: " + e.getMessage());
         }
     }
 
     /**
-     * Genera el reporte de ventas ordenado por total descendente.
+     * Obtiene el punto de control del modo incremental. Cada parte de
+     * {@code --shard} guarda el suyo, porque solo registra sus archivos.
      *
-     * @throws IOException Si hay error leyendo/escribiendo archivos
-     * @throws ClassNotFoundException Si falla la deserialización
+     * @param options Opciones con la parte a procesar
+     * @return {@code data/report_checkpoint.bin}, o
+     * {@code data/report_checkpoint_<k>of<n>.bin} para la parte K de N
      */
+    private static Path checkpointFile(ReportOptions options) {
+        return Paths.get(DATA_DIR + CHECKPOINT_NAME
+                + (options.getShardCount() > 1 ? "_" + options.getShard() + "of" + options.getShardCount() : "")
+                + ".bin");
+    }
 
-    private static void generateSalesReport() throws IOException, ClassNotFoundException {
-        Map<String, Integer> productPrices = loadProductPrices();
-        List<Salesman> salesmen = loadSalesmen();
-        List<SalesEntry> salesEntries = new ArrayList<>();
-
-        for (Salesman s : salesmen) {
-            String id = String.valueOf(s.getId());
-            String fullName = s.getName();
-            int total = calculateTotalSalesForVendor(id, productPrices);
-            salesEntries.add(new SalesEntry(fullName, total));
+    /**
+     * Genera ambos reportes y, si se construyó, la matriz de ventas; exporta
+     * las métricas y, si se pidió, atiende consultas sobre los totales.
+     *
+     * @param totals Totales agregados
+     * @param options Opciones de los reportes
+     * @param metrics Métricas de la ejecución
+     * @throws IOException Si no se puede abrir el puerto de consultas
+     */
+    private static void generateReports(SalesTotals totals, ReportOptions options, PipelineMetrics metrics)
+            throws IOException {
+        generateSalesReport(totals, options, metrics);
+        generateSortedProductSales(totals, options, metrics);
+        if (totals.getCube() != null) {
+            generateSalesMatrix(totals, options, metrics);
         }
-
-        salesEntries.sort((a, b) -> Integer.compare(b.total, a.total));
-
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(SALES_REPORT_FILE))) {
-            for (SalesEntry entry : salesEntries) {
-                writer.write(entry.name + ";" + entry.total + "\n");
-            }
-            System.out.println("✅ Reporte de ventas generado exitosamente en: " + SALES_REPORT_FILE);
-        } catch (IOException e) {
-            System.err.println("❌ Error escribiendo el archivo de reporte de ventas: " + e.getMessage());
+        exportMetrics(metrics);
+        if (options.getHttpPort() > 0) {
+            startServer(options).update(totals);
         }
     }
 
     /**
-     * Carga los precios de productos desde archivo serializado.
+     * Inicia el servidor de consultas en el puerto de las opciones. El hilo
+     * del servidor mantiene vivo el proceso después de los reportes, así que
+     * se registra su cierre al terminar la JVM (Ctrl+C o SIGTERM).
      *
-     * @return Mapa con ID de producto y su precio
+     * @param options Opciones con el puerto y los decimales de los precios
+     * @return Servidor iniciado, aún sin totales
+     * @throws IOException Si no se puede abrir el puerto
      */
-    private static Map<String, Integer> loadProductPrices() throws IOException, ClassNotFoundException {
-        Map<String, Integer> prices = new HashMap<>();
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(PRODUCTS_SER))) {
-            @SuppressWarnings("unchecked")
-            List<Product> products = (List<Product>) ois.readObject();
-            for (Product p : products) {
-                prices.put(p.getId(), p.getPrice());
-            }
-        }
-        return prices;
+    private static ReportServer startServer(ReportOptions options) throws IOException {
+        ReportServer server = ReportServer.start(options.getHttpPort(), options.getPriceScale());
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        System.out.println("🌐 Consultas disponibles en http://localhost:" + server.getAddress().getPort() + "/");
+        return server;
     }
 
     /**
-     * Carga la lista de vendedores desde archivo serializado.
+     * Exporta las métricas junto a los reportes y avisa si hubo líneas
+     * omitidas o productos fuera del catálogo.
      *
-     * @return Lista de objetos Salesman
+     * @param metrics Métricas de la ejecución
      */
-
-    private static List<Salesman> loadSalesmen() throws IOException, ClassNotFoundException {
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(VENDORS_SER))) {
-            @SuppressWarnings("unchecked")
-            List<Salesman> salespeople = (List<Salesman>) ois.readObject();
-            return salespeople;
+    private static void exportMetrics(PipelineMetrics metrics) {
+        if (metrics.getMalformedLines() > 0) {
+            System.err.println("⚠️ Se omitieron " + metrics.getMalformedLines() + " líneas mal formadas.");
+        }
+        if (metrics.getUnknownProductLines() > 0) {
+            System.err.println("⚠️ " + metrics.getUnknownProductLines()
+                    + " líneas con productos que no están en el catálogo.");
+        }
+        try {
+            metrics.export(Paths.get(DATA_DIR));
+            System.out.println("📊 Métricas exportadas en: " + METRICS_JSON_FILE + " y " + METRICS_PROM_FILE);
+        } catch (IOException e) {
+            System.err.println("⚠️ No se pudieron exportar las métricas: " + e.getMessage());
         }
     }
 
     /**
-     * Calcula el total de ventas para un vendedor.
+     * Genera el reporte de ventas ordenado por total descendente.
      *
-     * @param id ID del vendedor
-     * @param productPrices Mapa de precios de productos
-     * @return Total de ventas calculado
+     * @param totals Totales agregados de los archivos de ventas
+     * @param options Opciones con los decimales de los precios, el límite del
+     * reporte y el presupuesto de memoria para ordenar
+     * @param metrics Métricas donde se registra el tiempo de ordenar y escribir
      */
 
-    private static int calculateTotalSalesForVendor(String id, Map<String, Integer> productPrices) {
-        List<String> files = listFilesByFolder(new File(DATA_DIR), id);
-        int total = 0;
-        for (String file : files) {
-            String salesFile = DATA_DIR + file;
-            List<String> lines = readFile(salesFile);
-            boolean readingProducts = false;
-
-            for (String line : lines) {
-                if (line.startsWith("ProductID")) {
-                    readingProducts = true;
-                    continue;
-                }
-                if (!readingProducts) {
-                    continue;
-                }
-
-                String[] parts = line.split(";");
-                if (parts.length >= 2) {
-                    String productId = parts[0];
-                    int quantity = Integer.parseInt(parts[1]);
-                    Integer price = productPrices.get(productId);
-                    if (price != null) {
-                        total += price * quantity;
-                    }
-                }
-            }
+    private static void generateSalesReport(SalesTotals totals, ReportOptions options, PipelineMetrics metrics) {
+        try {
+            Path output = Paths.get(SALES_REPORT_FILE + options.getReportSuffix());
+            writeSalesReport(totals, options, metrics, output);
+            System.out.println("✅ Reporte de ventas generado exitosamente en: " + output);
+        } catch (IOException e) {
+            System.err.println("❌ Error escribiendo el archivo de reporte de ventas: " + e.getMessage());
         }
-        return total;
     }
 
     /**
-     * Lee un archivo y devuelve sus líneas.
+     * Ordena los vendedores según las opciones y escribe el reporte de
+     * ventas en el archivo dado.
      *
-     * @param path Ruta del archivo
-     * @return Lista de líneas leídas
+     * @param totals Totales agregados de los archivos de ventas
+     * @param options Opciones del reporte
+     * @param metrics Métricas donde se registra el tiempo de ordenar y escribir
+     * @param output Archivo de salida
+     * @throws IOException Si ocurre un error de escritura
      */
-    private static List<String> readFile(String path) {
-        List<String> result = new ArrayList<>();
-        try (BufferedReader reader = new BufferedReader(new FileReader(path))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                result.add(line);
-            }
-        } catch (IOException e) {
-            System.err.println("⚠️ No se pudo leer el archivo: " + path);
+    static void writeSalesReport(SalesTotals totals, ReportOptions options, PipelineMetrics metrics, Path output)
+            throws IOException {
+        long start = System.nanoTime();
+        try (ExternalSorter<SalesReports.SalesEntry> spilled = usesExternalSort(options)
+                ? SalesReports.sortSalesmen(totals, options.getSortBudget(), Paths.get(DATA_DIR))
+                : null) {
+            Iterable<SalesReports.SalesEntry> salesEntries = spilled != null ? spilled
+                    : options.getTop() > 0
+                            ? SalesReports.topSalesmen(totals, options.getTop(), options.getThreads())
+                            : SalesReports.sortSalesmen(totals);
+            start = metrics.record(PipelineMetrics.Stage.SORT, start);
+            SalesReports.writeSalesReport(salesEntries, options.getPriceScale(), output);
+            metrics.record(PipelineMetrics.Stage.WRITE, start);
         }
-        return result;
     }
 
     /**
-     * Genera reporte de productos vendidos ordenados por cantidad.
+     * Exporta el cubo vendedor × producto de los totales.
+     *
+     * @param totals Totales agregados, con su cubo
+     * @param options Opciones con los decimales de los precios
+     * @param metrics Métricas donde se registra el tiempo de escribir
      */
-    public static void generateSortedProductSales() {
-        Map<String, Integer> productSales = new HashMap<>();
-
+    private static void generateSalesMatrix(SalesTotals totals, ReportOptions options, PipelineMetrics metrics) {
         try {
-            List<Salesman> salesmen = loadSalesmen();
+            Path output = Paths.get(SALES_MATRIX_FILE + options.getReportSuffix());
+            writeSalesMatrix(totals, options, metrics, output);
+            System.out.println("✅ Matriz de ventas (" + totals.getCube().cellCount() + " celdas) generada en: "
+                    + output);
+        } catch (IOException e) {
+            System.err.println("❌ Error escribiendo la matriz de ventas: " + e.getMessage());
+        }
+    }
 
-            for (Salesman s : salesmen) {
-                String id = String.valueOf(s.getId());
-                List<String> salesFiles = listFilesByFolder(new File(DATA_DIR), id);
-
-                for (String filename : salesFiles) {
-                    String salesFile = DATA_DIR + filename;
-                    List<String> salesLines = readFile(salesFile);
-
-                    boolean readingProducts = false;
-                    for (String line : salesLines) {
-                        if (line.startsWith("ProductID")) {
-                            readingProducts = true;
-                            continue;
-                        }
-                        if (!readingProducts) {
-                            continue;
-                        }
-
-                        String[] parts = line.split(";");
-                        if (parts.length >= 2) {
-                            String productId = parts[0];
-                            int quantity = Integer.parseInt(parts[1]);
-                            productSales.put(productId, productSales.getOrDefault(productId, 0) + quantity);
-                        }
-                    }
-                }
-            }
+    /**
+     * Escribe el cubo vendedor × producto en el archivo dado.
+     *
+     * @param totals Totales agregados, con su cubo
+     * @param options Opciones con los decimales de los precios
+     * @param metrics Métricas donde se registra el tiempo de escribir
+     * @param output Archivo de salida
+     * @throws IOException Si ocurre un error de escritura
+     */
+    static void writeSalesMatrix(SalesTotals totals, ReportOptions options, PipelineMetrics metrics, Path output)
+            throws IOException {
+        long start = System.nanoTime();
+        totals.getCube().writeCsv(options.getPriceScale(), output);
+        metrics.record(PipelineMetrics.Stage.WRITE, start);
+    }
 
-            List<Map.Entry<String, Integer>> sortedSales = new ArrayList<>(productSales.entrySet());
-            sortedSales.sort((a, b) -> b.getValue().compareTo(a.getValue()));
+    /**
+     * Indica si los reportes completos se ordenan con memoria acotada.
+     */
+    private static boolean usesExternalSort(ReportOptions options) {
+        return options.getTop() == 0 && options.getSortBudget() > 0;
+    }
 
-            try (BufferedWriter writer = new BufferedWriter(new FileWriter(PRODUCTS_REPORT_FILE))) {
-                writer.write("ProductID;TotalQuantity\n");
-                for (Map.Entry<String, Integer> entry : sortedSales) {
-                    writer.write(entry.getKey() + ";" + entry.getValue() + "\n");
-                }
-                System.out.println("✅ Reporte de productos vendidos generado exitosamente en: " + PRODUCTS_REPORT_FILE);
-            }
-        } catch (IOException | ClassNotFoundException e) {
-            System.err.println("❌ Error al generar reporte de productos vendidos: " + e.getMessage());
+    /**
+     * Carga el catálogo de productos desde el catálogo binario, o desde el
+     * archivo serializado si aún no se ha convertido.
+     *
+     * @return Catálogo con ID de producto y su precio
+     */
+    private static ProductCatalog loadProductCatalog() throws IOException, ClassNotFoundException {
+        Path binary = Paths.get(PRODUCTS_BIN);
+        if (Files.exists(binary)) {
+            return new ProductCatalog(BinaryCatalog.readProducts(binary));
         }
+        warnLegacyCatalog(PRODUCTS_SER);
+        return new ProductCatalog(CatalogConverter.<Product>readSer(Paths.get(PRODUCTS_SER)));
     }
 
     /**
-     * Clase auxiliar para almacenar temporalmente datos de ventas.
+     * Carga la lista de vendedores desde el catálogo binario, o desde el
+     * archivo serializado si aún no se ha convertido.
+     *
+     * @return Lista de objetos Salesman
      */
 
-    private static class SalesEntry {
-
-        String name;
-        int total;
+    private static List<Salesman> loadSalesmen() throws IOException, ClassNotFoundException {
+        Path binary = Paths.get(VENDORS_BIN);
+        if (Files.exists(binary)) {
+            return BinaryCatalog.readSalesmen(binary);
+        }
+        warnLegacyCatalog(VENDORS_SER);
+        return CatalogConverter.readSer(Paths.get(VENDORS_SER));
+    }
 
-        /**
-         * Crea una entrada de venta
-         *
-         * @param name Nombre del vendedor
-         * @param total Total de ventas
-         */
+    private static void warnLegacyCatalog(String path) {
+        System.err.println("⚠️ Usando el catálogo serializado " + path
+                + "; conviértalo con org.poli.generatefiles.CatalogConverter.");
+    }
 
-        public SalesEntry(String name, int total) {
-            this.name = name;
-            this.total = total;
+    /**
+     * Genera reporte de productos vendidos ordenados por cantidad.
+     *
+     * @param totals Totales agregados de los archivos de ventas
+     * @param options Opciones con el límite del reporte y el presupuesto de
+     * memoria para ordenar
+     * @param metrics Métricas donde se registra el tiempo de ordenar y escribir
+     */
+    public static void generateSortedProductSales(SalesTotals totals, ReportOptions options,
+            PipelineMetrics metrics) {
+        try {
+            Path output = Paths.get(PRODUCTS_REPORT_FILE + options.getReportSuffix());
+            writeProductsReport(totals, options, metrics, output);
+            System.out.println("✅ Reporte de productos vendidos generado exitosamente en: " + output);
+        } catch (IOException e) {
+            System.err.println("❌ Error al generar reporte de productos vendidos: " + e.getMessage());
         }
     }
 
     /**
-     * Lista archivos en un directorio que contienen un ID específico en su
-     * nombre.
+     * Ordena los productos según las opciones y escribe el reporte de
+     * productos vendidos en el archivo dado.
      *
-     * @param folder Directorio donde buscar los archivos
-     * @param id Cadena que debe contener el nombre del archivo
-     * @return Lista de nombres de archivos que cumplen con los criterios
+     * @param totals Totales agregados de los archivos de ventas
+     * @param options Opciones del reporte
+     * @param metrics Métricas donde se registra el tiempo de ordenar y escribir
+     * @param output Archivo de salida
+     * @throws IOException Si ocurre un error de escritura
      */
-
-    private static List<String> listFilesByFolder(final File folder, String id) {
-        List<String> files = new ArrayList<>();
-        for (final File fileEntry : folder.listFiles()) {
-            if (!fileEntry.isDirectory() && fileEntry.getName().contains(id)) {
-                files.add(fileEntry.getName());
-            }
+    static void writeProductsReport(SalesTotals totals, ReportOptions options, PipelineMetrics metrics,
+            Path output) throws IOException {
+        long start = System.nanoTime();
+        try (ExternalSorter<SalesReports.ProductEntry> spilled = usesExternalSort(options)
+                ? SalesReports.sortProducts(totals, options.getSortBudget(), Paths.get(DATA_DIR))
+                : null) {
+            Iterable<SalesReports.ProductEntry> sortedSales = spilled != null ? spilled
+                    : options.getTop() > 0
+                            ? SalesReports.topProducts(totals, options.getTop(), options.getThreads())
+                            : SalesReports.sortProducts(totals);
+            start = metrics.record(PipelineMetrics.Stage.SORT, start);
+            SalesReports.writeProductsReport(sortedSales, output);
+            metrics.record(PipelineMetrics.Stage.WRITE, start);
         }
-        return files;
     }
 }
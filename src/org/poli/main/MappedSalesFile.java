@@ -0,0 +1,114 @@
+package org.poli.main;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Mapea en memoria la sección de productos de un archivo de ventas grande,
+ * dividida en regiones alineadas a saltos de línea para que varios hilos
+ * puedan interpretarla a la vez.
+ */
+public class MappedSalesFile {
+
+    private static final long MIN_REGION_SIZE = 4L * 1024 * 1024;
+    private static final long MAX_REGION_SIZE = 1L << 30;
+    private static final int SCAN_BUFFER_SIZE = 8 * 1024;
+
+    private MappedSalesFile() {
+    }
+
+    /**
+     * Mapea las líneas posteriores al encabezado {@code ProductID} en hasta
+     * {@code parts} regiones (más si alguna excedería el tamaño máximo de un
+     * mapeo). Cada región empieza al inicio de una línea.
+     *
+     * @param file Archivo de ventas
+     * @param parts Número deseado de regiones
+     * @return Regiones mapeadas, vacía si el archivo no tiene encabezado
+     * @throws IOException Si no se puede leer o mapear el archivo
+     */
+    public static List<ByteBuffer> mapProductRegions(Path file, int parts) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long start = findProductsStart(channel);
+            if (start < 0 || start >= size) {
+                return Collections.emptyList();
+            }
+
+            long regionSize = (size - start + parts - 1) / parts;
+            regionSize = Math.min(MAX_REGION_SIZE, Math.max(MIN_REGION_SIZE, regionSize));
+
+            List<ByteBuffer> regions = new ArrayList<>();
+            long from = start;
+            while (from < size) {
+                long to = from + regionSize >= size ? size : nextLineStart(channel, from + regionSize, size);
+                regions.add(channel.map(FileChannel.MapMode.READ_ONLY, from, to - from));
+                from = to;
+            }
+            return regions;
+        }
+    }
+
+    /**
+     * Busca la posición que sigue a la línea de encabezado {@code ProductID}.
+     *
+     * @param channel Canal del archivo
+     * @return Posición del inicio de la primera línea de producto, o -1 si no
+     * hay encabezado
+     */
+    static long findProductsStart(FileChannel channel) throws IOException {
+        byte[] header = SalesLineParser.HEADER;
+        InputStream in = new BufferedInputStream(Channels.newInputStream(channel.position(0)), SCAN_BUFFER_SIZE);
+        long position = 0;
+        int matched = 0;
+        int b;
+        while ((b = in.read()) != -1) {
+            position++;
+            if (b == '\n' || b == '\r') {
+                if (matched == header.length) {
+                    return position;
+                }
+                matched = 0;
+            } else if (matched >= 0 && matched < header.length) {
+                matched = b == header[matched] ? matched + 1 : -1;
+            }
+        }
+        return matched == header.length ? position : -1;
+    }
+
+    /**
+     * Busca el inicio de la línea siguiente a la posición dada.
+     *
+     * @param channel Canal del archivo
+     * @param position Posición desde donde buscar
+     * @param size Tamaño del archivo
+     * @return Posición posterior al siguiente salto de línea, o el tamaño del
+     * archivo si no hay más saltos
+     */
+    private static long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (SalesLineParser.isLineEnd(buffer.get(i))) {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+}
@@ -0,0 +1,205 @@
+package org.poli.main;
+
+import java.io.*;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.poli.generatefiles.BinaryCatalog;
+import org.poli.generatefiles.Salesman;
+
+/**
+ * Agregado parcial de un subconjunto de archivos de ventas, para repartir el
+ * reporte entre varias máquinas y combinar después los resultados.
+ *
+ * <pre>
+ * int    magic ("PAGG")
+ * int    versión
+ * long   huella del catálogo de productos
+ * long   huella de la lista de vendedores
+ * long   archivos, líneas, bytes, líneas mal formadas, productos desconocidos
+ * int    cantidad de vendedores (n)
+ *        por vendedor: byte 0 + long total, o byte 1 + entero grande
+ * int    productos vendidos del catálogo
+ *        por producto: int posición, long cantidad
+ * int    productos fuera del catálogo
+ *        por producto: texto ID, long cantidad
+ * </pre>
+ *
+ * <p>
+ * Todos los nodos deben usar los mismos catálogos; las huellas lo
+ * comprueban al combinar. Las sumas son exactas, por lo que el reporte
+ * combinado es idéntico al de una sola ejecución sobre todos los archivos.
+ * </p>
+ */
+public final class PartialAggregate {
+
+    private static final int MAGIC = 0x50414747; // "PAGG"
+    private static final int VERSION = 1;
+
+    private PartialAggregate() {
+    }
+
+    /**
+     * Escribe los totales y los contadores de una ejecución como agregado
+     * parcial, pasando por un archivo temporal.
+     *
+     * @param totals Totales agregados de los archivos de ventas
+     * @param metrics Métricas con los contadores de la ejecución
+     * @param path Archivo de salida
+     * @throws IOException Si ocurre un error de escritura
+     */
+    public static void write(SalesTotals totals, PipelineMetrics metrics, Path path) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        ProductCatalog catalog = totals.getCatalog();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(catalog.fingerprint());
+            out.writeLong(fingerprint(totals.getSalesmen()));
+            out.writeLong(metrics.getFiles());
+            out.writeLong(metrics.getLines());
+            out.writeLong(metrics.getBytes());
+            out.writeLong(metrics.getMalformedLines());
+            out.writeLong(metrics.getUnknownProductLines());
+
+            int salesmen = totals.getSalesmen().size();
+            out.writeInt(salesmen);
+            for (int i = 0; i < salesmen; i++) {
+                if (totals.isLargeRevenue(i)) {
+                    byte[] bytes = totals.getExactRevenue(i).toByteArray();
+                    out.writeByte(1);
+                    out.writeShort(bytes.length);
+                    out.write(bytes);
+                } else {
+                    out.writeByte(0);
+                    out.writeLong(totals.getRevenue(i));
+                }
+            }
+
+            int sold = 0;
+            for (int i = 0; i < catalog.size(); i++) {
+                sold += totals.isSold(i) ? 1 : 0;
+            }
+            out.writeInt(sold);
+            for (int i = 0; i < catalog.size(); i++) {
+                if (totals.isSold(i)) {
+                    out.writeInt(i);
+                    out.writeLong(totals.getProductQuantity(i));
+                }
+            }
+
+            Map<String, Long> unknown = new HashMap<>();
+            totals.forEachUnknownProduct(unknown::put);
+            out.writeInt(unknown.size());
+            for (Map.Entry<String, Long> entry : unknown.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeLong(entry.getValue());
+            }
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Combina agregados parciales en los totales finales y suma sus
+     * contadores a las métricas dadas.
+     *
+     * @param paths Archivos de agregados parciales
+     * @param catalog Catálogo de productos, el mismo de todos los nodos
+     * @param salesmen Vendedores, los mismos de todos los nodos
+     * @param metrics Métricas donde se suman los contadores de cada parcial
+     * @return Totales combinados
+     * @throws IOException Si un parcial no se puede leer, tiene un formato
+     * desconocido o se generó con otros catálogos
+     */
+    public static SalesTotals merge(List<Path> paths, ProductCatalog catalog, List<Salesman> salesmen,
+            PipelineMetrics metrics) throws IOException {
+        long catalogFingerprint = catalog.fingerprint();
+        long salesmenFingerprint = fingerprint(salesmen);
+        long[] revenue = new long[salesmen.size()];
+        Map<Integer, BigInteger> overflow = new HashMap<>();
+        long[] quantities = new long[catalog.size()];
+        BitSet sold = new BitSet(catalog.size());
+        Map<String, Long> unknown = new HashMap<>();
+
+        for (Path path : paths) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+                if (in.readInt() != MAGIC) {
+                    throw new IOException("No es un agregado parcial: " + path);
+                }
+                int version = in.readInt();
+                if (version != VERSION) {
+                    throw new IOException("Versión de agregado parcial no soportada en " + path + ": " + version);
+                }
+                if (in.readLong() != catalogFingerprint) {
+                    throw new IOException("El agregado " + path + " se generó con otro catálogo de productos");
+                }
+                if (in.readLong() != salesmenFingerprint) {
+                    throw new IOException("El agregado " + path + " se generó con otra lista de vendedores");
+                }
+                long files = in.readLong();
+                long lines = in.readLong();
+                long bytes = in.readLong();
+                long malformed = in.readLong();
+                long unknownLines = in.readLong();
+                metrics.addFiles(files, bytes);
+                metrics.addLines(lines, malformed, unknownLines);
+
+                if (in.readInt() != salesmen.size()) {
+                    throw new IOException("El agregado " + path + " se generó con otra lista de vendedores");
+                }
+                for (int i = 0; i < revenue.length; i++) {
+                    if (in.readByte() == 1) {
+                        byte[] exact = new byte[in.readUnsignedShort()];
+                        in.readFully(exact);
+                        overflow.merge(i, new BigInteger(exact), BigInteger::add);
+                    } else {
+                        long amount = in.readLong();
+                        try {
+                            revenue[i] = Math.addExact(revenue[i], amount);
+                        } catch (ArithmeticException e) {
+                            overflow.merge(i, BigInteger.valueOf(amount), BigInteger::add);
+                        }
+                    }
+                }
+
+                int soldCount = in.readInt();
+                for (int j = 0; j < soldCount; j++) {
+                    int index = in.readInt();
+                    if (index < 0 || index >= quantities.length) {
+                        throw new IOException("Producto fuera del catálogo en " + path + ": " + index);
+                    }
+                    quantities[index] += in.readLong();
+                    sold.set(index);
+                }
+                int unknownCount = in.readInt();
+                for (int j = 0; j < unknownCount; j++) {
+                    unknown.merge(in.readUTF(), in.readLong(), Long::sum);
+                }
+            } catch (EOFException e) {
+                throw new IOException("Agregado parcial truncado: " + path, e);
+            }
+        }
+        return new SalesTotals(salesmen, revenue, overflow, catalog, quantities, sold, unknown);
+    }
+
+    /**
+     * Calcula una huella de la lista de vendedores (IDs y orden).
+     */
+    private static long fingerprint(List<Salesman> salesmen) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < salesmen.size(); i++) {
+            String id = Long.toString(BinaryCatalog.salesmanId(salesmen, i));
+            for (byte b : id.getBytes(StandardCharsets.US_ASCII)) {
+                hash = (hash ^ b) * 0x100000001b3L;
+            }
+            hash = (hash ^ ';') * 0x100000001b3L;
+        }
+        return hash ^ salesmen.size();
+    }
+}
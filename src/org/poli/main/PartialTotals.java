@@ -0,0 +1,203 @@
+package org.poli.main;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.poli.generatefiles.Salesman;
+
+/**
+ * Totales parciales acumulados por un hilo de trabajo, en arreglos
+ * primitivos indexados por la posición del vendedor y del producto.
+ * Recibe las líneas de su propio {@link SalesLineParser}.
+ *
+ * <p>
+ * Si se pide el cubo vendedor × producto, las cantidades del archivo en curso
+ * se acumulan aparte y pasan al {@link SalesCube.Builder} del hilo al cerrar
+ * el archivo, cuando ya se conoce su vendedor.
+ * </p>
+ */
+class PartialTotals implements SalesLineParser.LineHandler {
+
+    final ProductCatalog catalog;
+    final PipelineMetrics metrics;
+    final long[] revenue;
+    final Map<Integer, BigInteger> revenueOverflow = new HashMap<>();
+    final long[] productQuantities;
+    final BitSet soldProducts;
+    final Map<String, Long> unknownQuantities = new HashMap<>();
+    final SalesLineParser parser;
+    long fileTotal;
+    BigInteger fileOverflow;
+    long unknownLines;
+    final SalesCube.Builder cube;
+    private final long[] fileQuantities;
+    private final BitSet fileSeen;
+    private int[] fileProducts;
+    private int fileProductCount;
+    private long reportedLines;
+    private long reportedMalformed;
+    private long reportedUnknown;
+
+    /**
+     * Crea totales parciales vacíos.
+     *
+     * @param catalog Catálogo de productos con sus precios
+     * @param metrics Métricas donde se informan las líneas contadas
+     * @param salesmanCount Número de vendedores
+     */
+    PartialTotals(ProductCatalog catalog, PipelineMetrics metrics, int salesmanCount) {
+        this(catalog, metrics, salesmanCount, false);
+    }
+
+    /**
+     * Crea totales parciales vacíos que, si se indica, acumulan también el
+     * cubo vendedor × producto.
+     *
+     * @param catalog Catálogo de productos con sus precios
+     * @param metrics Métricas donde se informan las líneas contadas
+     * @param salesmanCount Número de vendedores
+     * @param withCube {@code true} para acumular el cubo
+     */
+    PartialTotals(ProductCatalog catalog, PipelineMetrics metrics, int salesmanCount, boolean withCube) {
+        this.catalog = catalog;
+        this.metrics = metrics;
+        this.revenue = new long[salesmanCount];
+        this.productQuantities = new long[catalog.size()];
+        this.soldProducts = new BitSet(catalog.size());
+        this.parser = new SalesLineParser(catalog);
+        this.cube = withCube ? new SalesCube.Builder() : null;
+        this.fileQuantities = withCube ? new long[catalog.size()] : null;
+        this.fileSeen = withCube ? new BitSet(catalog.size()) : null;
+        this.fileProducts = withCube ? new int[64] : null;
+    }
+
+    @Override
+    public void onProduct(int productIndex, int quantity) {
+        productQuantities[productIndex] += quantity;
+        soldProducts.set(productIndex);
+        if (cube != null) {
+            addFileQuantity(productIndex, quantity);
+        }
+        long amount = Math.multiplyExact((long) catalog.getPrice(productIndex), quantity);
+        try {
+            fileTotal = Math.addExact(fileTotal, amount);
+        } catch (ArithmeticException e) {
+            BigInteger overflow = fileOverflow == null ? BigInteger.ZERO : fileOverflow;
+            fileOverflow = overflow.add(BigInteger.valueOf(fileTotal)).add(BigInteger.valueOf(amount));
+            fileTotal = 0;
+        }
+    }
+
+    /**
+     * Acumula la cantidad del archivo en curso, recordando la primera
+     * aparición de cada producto para no recorrer todo el catálogo al cerrar
+     * el archivo.
+     */
+    private void addFileQuantity(int productIndex, int quantity) {
+        if (!fileSeen.get(productIndex)) {
+            fileSeen.set(productIndex);
+            if (fileProductCount == fileProducts.length) {
+                fileProducts = Arrays.copyOf(fileProducts, fileProductCount * 2);
+            }
+            fileProducts[fileProductCount++] = productIndex;
+        }
+        fileQuantities[productIndex] += quantity;
+    }
+
+    @Override
+    public void onUnknownProduct(String productId, int quantity) {
+        unknownQuantities.merge(productId, (long) quantity, Long::sum);
+        unknownLines++;
+    }
+
+    /**
+     * Pasa a las métricas las líneas contadas desde la última llamada.
+     */
+    void flushCounts() {
+        long lines = parser.getLines();
+        long malformed = parser.getMalformedLines();
+        metrics.addLines(lines - reportedLines, malformed - reportedMalformed, unknownLines - reportedUnknown);
+        reportedLines = lines;
+        reportedMalformed = malformed;
+        reportedUnknown = unknownLines;
+    }
+
+    /**
+     * Suma el total del archivo o región recién procesado al vendedor y
+     * reinicia el total del archivo.
+     *
+     * @param salesmanIndex Posición del vendedor
+     */
+    void addFileTotal(int salesmanIndex) {
+        addRevenue(salesmanIndex, fileTotal, fileOverflow);
+        fileTotal = 0;
+        fileOverflow = null;
+        if (cube != null) {
+            for (int i = 0; i < fileProductCount; i++) {
+                int productIndex = fileProducts[i];
+                cube.add(salesmanIndex, productIndex, fileQuantities[productIndex]);
+                fileQuantities[productIndex] = 0;
+                fileSeen.clear(productIndex);
+            }
+            fileProductCount = 0;
+        }
+    }
+
+    /**
+     * Suma un monto al total de un vendedor, pasando a {@link BigInteger}
+     * la parte que no cabe en {@code long}.
+     *
+     * @param salesmanIndex Posición del vendedor
+     * @param amount Monto a sumar
+     * @param overflow Monto adicional fuera del rango de {@code long}, o
+     * {@code null}
+     */
+    void addRevenue(int salesmanIndex, long amount, BigInteger overflow) {
+        try {
+            revenue[salesmanIndex] = Math.addExact(revenue[salesmanIndex], amount);
+        } catch (ArithmeticException e) {
+            overflow = overflow == null ? BigInteger.valueOf(amount) : overflow.add(BigInteger.valueOf(amount));
+        }
+        if (overflow != null) {
+            revenueOverflow.merge(salesmanIndex, overflow, BigInteger::add);
+        }
+    }
+
+    /**
+     * Suma otro total parcial en este.
+     *
+     * @param other Total parcial a sumar
+     */
+    void merge(PartialTotals other) {
+        for (int i = 0; i < revenue.length; i++) {
+            addRevenue(i, other.revenue[i], null);
+        }
+        other.revenueOverflow.forEach((i, overflow) -> revenueOverflow.merge(i, overflow, BigInteger::add));
+        for (int i = 0; i < productQuantities.length; i++) {
+            productQuantities[i] += other.productQuantities[i];
+        }
+        soldProducts.or(other.soldProducts);
+        other.unknownQuantities.forEach((id, quantity) -> unknownQuantities.merge(id, quantity, Long::sum));
+        if (cube != null) {
+            cube.merge(other.cube);
+        }
+    }
+
+    /**
+     * Convierte estos totales en el resultado final.
+     *
+     * @param salesmen Vendedores agregados, en el orden de sus posiciones
+     * @return Totales por vendedor y por producto, con el cubo si se pidió
+     */
+    SalesTotals toTotals(List<Salesman> salesmen) {
+        SalesTotals totals = new SalesTotals(salesmen, revenue, revenueOverflow, catalog, productQuantities,
+                soldProducts, unknownQuantities);
+        if (cube != null) {
+            totals.setCube(cube.build(salesmen, catalog));
+        }
+        return totals;
+    }
+}
@@ -0,0 +1,328 @@
+package org.poli.main;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Métricas de una ejecución del reporte: tiempo por etapa con un histograma
+ * de latencias, y contadores de archivos, líneas, bytes, líneas mal formadas y
+ * productos desconocidos.
+ *
+ * <p>
+ * Los contadores usan {@link LongAdder}, por lo que los hilos de agregación
+ * pueden actualizarlos sin bloquearse. Las métricas se exportan como JSON y
+ * como texto de Prometheus, y se pueden consultar por JMX durante la
+ * ejecución.
+ * </p>
+ *
+ * <p>
+ * La etapa {@link Stage#PARSE} se mide por archivo (o región mapeada), y
+ * {@link Stage#AGGREGATE} mide la agregación completa, que incluye la
+ * interpretación de los archivos y la combinación de los totales parciales.
+ * </p>
+ */
+public class PipelineMetrics implements PipelineMetricsMXBean {
+
+    /**
+     * Nombre con el que se registra el MXBean.
+     */
+    public static final String OBJECT_NAME = "org.poli:type=PipelineMetrics";
+
+    /**
+     * Etapas medidas del reporte.
+     */
+    public enum Stage {
+        CATALOG_LOAD("catalog_load"),
+        SCAN("scan"),
+        PARSE("parse"),
+        AGGREGATE("aggregate"),
+        SORT("sort"),
+        WRITE("write");
+
+        private final String label;
+
+        Stage(String label) {
+            this.label = label;
+        }
+
+        /**
+         * @return Nombre de la etapa en las métricas exportadas
+         */
+        public String label() {
+            return label;
+        }
+    }
+
+    /**
+     * Límites superiores de los intervalos del histograma, en nanosegundos:
+     * de 1 µs a unos 67 s, cada uno cuatro veces el anterior.
+     */
+    private static final long[] BOUNDS = new long[14];
+
+    static {
+        for (int i = 0; i < BOUNDS.length; i++) {
+            BOUNDS[i] = 1000L << (2 * i);
+        }
+    }
+
+    private final LongAdder files = new LongAdder();
+    private final LongAdder lines = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder malformedLines = new LongAdder();
+    private final LongAdder unknownProductLines = new LongAdder();
+    private final Histogram[] stages = new Histogram[Stage.values().length];
+
+    /**
+     * Crea métricas vacías.
+     */
+    public PipelineMetrics() {
+        for (int i = 0; i < stages.length; i++) {
+            stages[i] = new Histogram();
+        }
+    }
+
+    /**
+     * Registra la duración de una etapa.
+     *
+     * @param stage Etapa medida
+     * @param startNanos Valor de {@link System#nanoTime()} al iniciar la etapa
+     * @return Valor actual de {@link System#nanoTime()}, para encadenar la
+     * medición de la etapa siguiente
+     */
+    public long record(Stage stage, long startNanos) {
+        long now = System.nanoTime();
+        stages[stage.ordinal()].add(now - startNanos);
+        return now;
+    }
+
+    /**
+     * Suma un archivo de ventas procesado.
+     *
+     * @param size Tamaño del archivo en bytes
+     */
+    public void addFile(long size) {
+        files.increment();
+        bytes.add(size);
+    }
+
+    /**
+     * Suma varios archivos de ventas procesados en otra ejecución, por
+     * ejemplo al combinar agregados parciales.
+     *
+     * @param count Cantidad de archivos
+     * @param size Tamaño total de los archivos en bytes
+     */
+    public void addFiles(long count, long size) {
+        files.add(count);
+        bytes.add(size);
+    }
+
+    /**
+     * Suma líneas interpretadas.
+     *
+     * @param count Líneas de producto, incluidas las mal formadas
+     * @param malformed Líneas omitidas por estar mal formadas
+     * @param unknown Líneas con productos que no están en el catálogo
+     */
+    public void addLines(long count, long malformed, long unknown) {
+        lines.add(count);
+        malformedLines.add(malformed);
+        unknownProductLines.add(unknown);
+    }
+
+    @Override
+    public long getFiles() {
+        return files.sum();
+    }
+
+    @Override
+    public long getLines() {
+        return lines.sum();
+    }
+
+    @Override
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    @Override
+    public long getMalformedLines() {
+        return malformedLines.sum();
+    }
+
+    @Override
+    public long getUnknownProductLines() {
+        return unknownProductLines.sum();
+    }
+
+    @Override
+    public Map<String, Long> getStageMillis() {
+        Map<String, Long> millis = new LinkedHashMap<>();
+        for (Stage stage : Stage.values()) {
+            millis.put(stage.label(), stages[stage.ordinal()].sum.sum() / 1_000_000);
+        }
+        return millis;
+    }
+
+    @Override
+    public Map<String, Long> getStageSamples() {
+        Map<String, Long> samples = new LinkedHashMap<>();
+        for (Stage stage : Stage.values()) {
+            samples.put(stage.label(), stages[stage.ordinal()].count());
+        }
+        return samples;
+    }
+
+    /**
+     * Registra estas métricas en el servidor de MBeans de la plataforma,
+     * reemplazando un registro anterior. Si falla solo se avisa.
+     */
+    public void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+        } catch (JMException e) {
+            System.err.println("⚠️ No se pudieron publicar las métricas por JMX: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Escribe {@code metrics.json} y {@code metrics.prom} en el directorio
+     * dado.
+     *
+     * @param dir Directorio de salida
+     * @throws IOException Si ocurre un error de escritura
+     */
+    public void export(Path dir) throws IOException {
+        Files.write(dir.resolve("metrics.json"), toJson().getBytes(StandardCharsets.UTF_8));
+        Files.write(dir.resolve("metrics.prom"), toPrometheus().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Da formato JSON a las métricas. Los conteos de cada histograma no son
+     * acumulados; el último corresponde a las mediciones mayores que el
+     * último límite.
+     *
+     * @return Documento JSON
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder("{\n");
+        json.append("  \"files\": ").append(getFiles()).append(",\n");
+        json.append("  \"lines\": ").append(getLines()).append(",\n");
+        json.append("  \"bytes\": ").append(getBytes()).append(",\n");
+        json.append("  \"malformedLines\": ").append(getMalformedLines()).append(",\n");
+        json.append("  \"unknownProductLines\": ").append(getUnknownProductLines()).append(",\n");
+        json.append("  \"bucketBoundsNanos\": [");
+        for (int i = 0; i < BOUNDS.length; i++) {
+            json.append(i > 0 ? ", " : "").append(BOUNDS[i]);
+        }
+        json.append("],\n  \"stages\": {");
+        for (Stage stage : Stage.values()) {
+            Histogram histogram = stages[stage.ordinal()];
+            json.append(stage.ordinal() > 0 ? "," : "").append("\n    \"").append(stage.label()).append("\": {")
+                    .append("\"count\": ").append(histogram.count())
+                    .append(", \"sumNanos\": ").append(histogram.sum.sum())
+                    .append(", \"maxNanos\": ").append(histogram.max.get())
+                    .append(", \"buckets\": [");
+            for (int i = 0; i < histogram.buckets.length; i++) {
+                json.append(i > 0 ? ", " : "").append(histogram.buckets[i].sum());
+            }
+            json.append("]}");
+        }
+        return json.append("\n  }\n}\n").toString();
+    }
+
+    /**
+     * Da formato de texto de Prometheus a las métricas.
+     *
+     * @return Métricas en formato de exposición de Prometheus
+     */
+    public String toPrometheus() {
+        StringBuilder text = new StringBuilder();
+        counter(text, "poli_files_total", "Archivos de ventas procesados", getFiles());
+        counter(text, "poli_lines_total", "Lineas de producto interpretadas", getLines());
+        counter(text, "poli_bytes_total", "Bytes de archivos de ventas procesados", getBytes());
+        counter(text, "poli_malformed_lines_total", "Lineas omitidas por estar mal formadas", getMalformedLines());
+        counter(text, "poli_unknown_product_lines_total", "Lineas con productos fuera del catalogo",
+                getUnknownProductLines());
+
+        text.append("# HELP poli_stage_duration_seconds Duracion de cada etapa del reporte\n");
+        text.append("# TYPE poli_stage_duration_seconds histogram\n");
+        for (Stage stage : Stage.values()) {
+            Histogram histogram = stages[stage.ordinal()];
+            String labels = "{stage=\"" + stage.label() + "\"";
+            long cumulative = 0;
+            for (int i = 0; i < BOUNDS.length; i++) {
+                cumulative += histogram.buckets[i].sum();
+                text.append("poli_stage_duration_seconds_bucket").append(labels).append(",le=\"")
+                        .append(seconds(BOUNDS[i])).append("\"} ").append(cumulative).append('\n');
+            }
+            text.append("poli_stage_duration_seconds_bucket").append(labels).append(",le=\"+Inf\"} ")
+                    .append(histogram.count()).append('\n');
+            text.append("poli_stage_duration_seconds_sum").append(labels).append("} ")
+                    .append(seconds(histogram.sum.sum())).append('\n');
+            text.append("poli_stage_duration_seconds_count").append(labels).append("} ")
+                    .append(histogram.count()).append('\n');
+        }
+        return text.toString();
+    }
+
+    private static void counter(StringBuilder text, String name, String help, long value) {
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(name).append(" counter\n");
+        text.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static String seconds(long nanos) {
+        return BigDecimal.valueOf(nanos, 9).stripTrailingZeros().toPlainString();
+    }
+
+    /**
+     * Histograma de latencias con intervalos fijos y contadores sin bloqueo.
+     */
+    private static class Histogram {
+
+        final LongAdder[] buckets = new LongAdder[BOUNDS.length + 1];
+        final LongAdder sum = new LongAdder();
+        final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        Histogram() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        void add(long nanos) {
+            int bucket = 0;
+            while (bucket < BOUNDS.length && nanos > BOUNDS[bucket]) {
+                bucket++;
+            }
+            buckets[bucket].increment();
+            sum.add(nanos);
+            max.accumulate(nanos);
+        }
+
+        long count() {
+            long count = 0;
+            for (LongAdder bucket : buckets) {
+                count += bucket.sum();
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package org.poli.main;
+
+import java.util.Map;
+
+/**
+ * Vista JMX de {@link PipelineMetrics}, registrada como
+ * {@code org.poli:type=PipelineMetrics} mientras se generan los reportes.
+ */
+public interface PipelineMetricsMXBean {
+
+    /**
+     * @return Archivos de ventas procesados
+     */
+    long getFiles();
+
+    /**
+     * @return Líneas de producto interpretadas, incluidas las mal formadas
+     */
+    long getLines();
+
+    /**
+     * @return Bytes de archivos de ventas procesados
+     */
+    long getBytes();
+
+    /**
+     * @return Líneas omitidas por estar mal formadas
+     */
+    long getMalformedLines();
+
+    /**
+     * @return Líneas con un ID de producto que no está en el catálogo
+     */
+    long getUnknownProductLines();
+
+    /**
+     * @return Tiempo acumulado por etapa, en milisegundos
+     */
+    Map<String, Long> getStageMillis();
+
+    /**
+     * @return Número de mediciones por etapa
+     */
+    Map<String, Long> getStageSamples();
+}
@@ -0,0 +1,419 @@
+package org.poli.main;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.poli.generatefiles.BinaryCatalog;
+import org.poli.generatefiles.Salesman;
+
+/**
+ * Agregación en etapas: hilos lectores leen los archivos de ventas en bloques
+ * alineados a líneas, un grupo de hilos intérpretes los procesa y al final
+ * se combinan los totales parciales de cada intérprete.
+ *
+ * <p>
+ * Las etapas se comunican por una cola acotada, y los bloques salen de un
+ * conjunto fijo de búferes que los intérpretes devuelven al terminar. Si los
+ * intérpretes se atrasan, los lectores esperan un búfer libre, de modo que la
+ * memoria usada no crece con el tamaño de los datos. Mientras tanto las
+ * lecturas se solapan con la interpretación, lo que aprovecha la CPU cuando
+ * el disco (por ejemplo un volumen de red) es lento.
+ * </p>
+ *
+ * <p>
+ * Los archivos comprimidos ({@link Compression}) se descomprimen en los hilos
+ * lectores, en paralelo con la interpretación de los bloques ya leídos; con
+ * {@code --readers} mayor que 1 también se descomprimen varios archivos a la
+ * vez.
+ * </p>
+ *
+ * <p>
+ * Memoria de bloques: ({@code 2 × intérpretes + intérpretes + 2 × lectores})
+ * × {@value #BLOCK_SIZE} bytes. Una línea más larga que un bloque se lee en
+ * un búfer temporal más grande.
+ * </p>
+ *
+ * <p>
+ * Los rangos de los segmentos compactados ({@link SalesSegment}) ya están
+ * mapeados en memoria: los lectores los pasan a la cola sin copiarlos.
+ * </p>
+ *
+ * <p>
+ * Si un hilo de cualquiera de las etapas falla, incluso con un {@link Error}
+ * como falta de memoria, se interrumpen los de ambas etapas y la agregación
+ * lanza esa falla en lugar de devolver totales incompletos. Un error de
+ * lectura de un archivo solo se advierte; si ocurre a mitad del archivo, la
+ * advertencia indica que sus bloques anteriores ya se sumaron.
+ * </p>
+ */
+public class PipelinedAggregator {
+
+    private static final int BLOCK_SIZE = 1024 * 1024;
+    private static final int QUEUED_BLOCKS_PER_PARSER = 2;
+    private static final int[] NO_POSITIONS = new int[0];
+    private static final long END_WAIT_MILLIS = 100;
+
+    private final ProductCatalog catalog;
+    private final int parsers;
+    private final int readers;
+    private final PipelineMetrics metrics;
+    private final boolean cube;
+
+    /**
+     * Crea un agregador en etapas.
+     *
+     * @param catalog Catálogo de productos con sus precios
+     * @param parsers Número de hilos intérpretes
+     * @param readers Número de hilos lectores
+     * @param metrics Métricas de la ejecución
+     */
+    public PipelinedAggregator(ProductCatalog catalog, int parsers, int readers, PipelineMetrics metrics) {
+        this(catalog, parsers, readers, metrics, false);
+    }
+
+    /**
+     * Crea un agregador en etapas que, si se indica, construye también el
+     * cubo vendedor × producto.
+     *
+     * @param catalog Catálogo de productos con sus precios
+     * @param parsers Número de hilos intérpretes
+     * @param readers Número de hilos lectores
+     * @param metrics Métricas de la ejecución
+     * @param cube {@code true} para construir el cubo (ver
+     * {@link SalesTotals#getCube()})
+     */
+    public PipelinedAggregator(ProductCatalog catalog, int parsers, int readers, PipelineMetrics metrics,
+            boolean cube) {
+        this.catalog = catalog;
+        this.parsers = Math.max(1, parsers);
+        this.readers = Math.max(1, readers);
+        this.metrics = metrics;
+        this.cube = cube;
+    }
+
+    /**
+     * Lee una vez cada archivo de ventas de los vendedores dados.
+     *
+     * @param salesmen Vendedores a agregar
+     * @param index Índice de archivos de ventas por vendedor
+     * @return Totales por vendedor y por producto
+     */
+    public SalesTotals aggregate(List<Salesman> salesmen, SalesFileIndex index) {
+        List<SalesFile> files = new ArrayList<>();
+        for (int i = 0; i < salesmen.size(); i++) {
+            String id = String.valueOf(BinaryCatalog.salesmanId(salesmen, i));
+            for (Path salesFile : index.filesFor(id)) {
+                files.add(new SalesFile(i, salesFile, index.sizeOf(salesFile), null));
+            }
+        }
+        if (!index.segments().isEmpty()) {
+            Map<String, int[]> positions = SalesAggregator.positionsById(salesmen);
+            for (SalesSegment segment : index.segments()) {
+                for (String id : segment.salesmanIds()) {
+                    for (int i : positions.getOrDefault(id, NO_POSITIONS)) {
+                        for (ByteBuffer region : segment.regions(id, parsers)) {
+                            files.add(new SalesFile(i, segment.getPath(), region.remaining(), region));
+                        }
+                    }
+                }
+            }
+        }
+
+        int queued = parsers * QUEUED_BLOCKS_PER_PARSER;
+        Pipeline pipeline = new Pipeline(files, queued, queued + parsers + 2 * readers);
+        List<PartialTotals> partials = new ArrayList<>(parsers);
+        List<Thread> parserThreads = new ArrayList<>(parsers);
+        for (int p = 0; p < parsers; p++) {
+            PartialTotals partial = new PartialTotals(catalog, metrics, salesmen.size(), cube);
+            partials.add(partial);
+            parserThreads.add(pipeline.start("sales-parser-" + p, () -> pipeline.parse(partial)));
+        }
+        List<Thread> readerThreads = new ArrayList<>(readers);
+        for (int r = 0; r < readers; r++) {
+            readerThreads.add(pipeline.start("sales-reader-" + r, pipeline::read));
+        }
+
+        try {
+            join(readerThreads);
+            pipeline.end();
+            join(parserThreads);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pipeline.abort(new IllegalStateException("Agregación interrumpida"));
+        }
+        Throwable failure = pipeline.failure.get();
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        if (failure != null) {
+            throw new IllegalStateException(failure);
+        }
+
+        PartialTotals result = partials.get(0);
+        for (int p = 1; p < parsers; p++) {
+            result.merge(partials.get(p));
+        }
+        return result.toTotals(salesmen);
+    }
+
+    private static void join(List<Thread> threads) throws InterruptedException {
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    /**
+     * Estado compartido entre las etapas: archivos pendientes, búferes libres
+     * y la cola de bloques leídos.
+     */
+    private class Pipeline {
+
+        final List<SalesFile> files;
+        final AtomicInteger nextFile = new AtomicInteger();
+        final BlockingQueue<byte[]> freeBuffers;
+        final BlockingQueue<Block> queue;
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final List<Thread> threads = new CopyOnWriteArrayList<>();
+
+        Pipeline(List<SalesFile> files, int queueCapacity, int buffers) {
+            this.files = files;
+            this.queue = new ArrayBlockingQueue<>(queueCapacity + parsers);
+            this.freeBuffers = new ArrayBlockingQueue<>(buffers);
+            for (int i = 0; i < buffers; i++) {
+                freeBuffers.add(new byte[BLOCK_SIZE]);
+            }
+        }
+
+        /**
+         * Inicia un hilo de alguna de las etapas y lo registra para poder
+         * interrumpirlo si otra falla.
+         */
+        Thread start(String name, Runnable task) {
+            Thread thread = new Thread(task, name);
+            thread.setDaemon(true);
+            threads.add(thread);
+            thread.start();
+            return thread;
+        }
+
+        /**
+         * Registra la primera falla e interrumpe los hilos de ambas etapas,
+         * que pueden estar esperando un búfer o un lugar en la cola que ya
+         * nadie va a liberar.
+         */
+        void abort(Throwable e) {
+            failure.compareAndSet(null, e);
+            for (Thread thread : threads) {
+                if (thread != Thread.currentThread()) {
+                    thread.interrupt();
+                }
+            }
+        }
+
+        /**
+         * Envía el fin a cada intérprete. Si la agregación ya falló no se
+         * insiste: los intérpretes muertos no vaciarían la cola.
+         */
+        void end() throws InterruptedException {
+            for (int p = 0; p < parsers; p++) {
+                while (!queue.offer(Block.END, END_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    if (failure.get() != null) {
+                        return;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Etapa de lectura: toma archivos pendientes hasta agotarlos.
+         */
+        void read() {
+            try {
+                int i;
+                while (failure.get() == null && (i = nextFile.getAndIncrement()) < files.size()) {
+                    SalesFile file = files.get(i);
+                    if (file.region != null) {
+                        queue.put(new Block(file.region, file.salesmanIndex));
+                        metrics.addFile(file.size);
+                    } else if (readFile(file)) {
+                        metrics.addFile(file.size);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Throwable e) {
+                abort(e);
+            }
+        }
+
+        /**
+         * Lee un archivo en bloques que terminan en salto de línea; la línea
+         * incompleta al final de un bloque pasa al inicio del siguiente. Un
+         * error de lectura se advierte y el archivo se da por terminado.
+         *
+         * @return {@code true} si el archivo se leyó completo
+         */
+        private boolean readFile(SalesFile file) throws InterruptedException {
+            boolean queued = false;
+            boolean inProducts = false;
+            byte[] buffer = freeBuffers.take();
+            int filled = 0;
+            try (InputStream in = Compression.open(file.path)) {
+                int read;
+                while ((read = in.read(buffer, filled, buffer.length - filled)) != -1) {
+                    filled += read;
+                    if (filled < buffer.length) {
+                        continue;
+                    }
+                    int end = lastNewline(buffer, filled);
+                    if (end < 0) {
+                        byte[] grown = Arrays.copyOf(buffer, buffer.length * 2);
+                        recycle(buffer);
+                        buffer = grown;
+                        continue;
+                    }
+                    byte[] next = freeBuffers.take();
+                    int carry = filled - end;
+                    if (carry > next.length) {
+                        recycle(next);
+                        next = new byte[buffer.length];
+                    }
+                    System.arraycopy(buffer, end, next, 0, carry);
+                    boolean headerInBlock = !inProducts && SalesLineParser.containsHeader(buffer, 0, end);
+                    queue.put(new Block(buffer, end, file.salesmanIndex, inProducts));
+                    queued = true;
+                    inProducts |= headerInBlock;
+                    buffer = next;
+                    filled = carry;
+                }
+            } catch (IOException e) {
+                recycle(buffer);
+                if (failure.get() == null) {
+                    System.err.println(queued
+                            ? "⚠️ Error a mitad del archivo " + file.path + "; las líneas leídas antes del error"
+                                    + " ya se sumaron a los totales: " + e.getMessage()
+                            : "⚠️ No se pudo leer el archivo " + file.path + ": " + e.getMessage());
+                }
+                return false;
+            }
+            if (filled > 0) {
+                queue.put(new Block(buffer, filled, file.salesmanIndex, inProducts));
+            } else {
+                recycle(buffer);
+            }
+            return true;
+        }
+
+        /**
+         * Etapa de interpretación: procesa bloques hasta recibir el fin.
+         */
+        void parse(PartialTotals partial) {
+            try {
+                Block block;
+                while ((block = queue.take()) != Block.END) {
+                    if (failure.get() == null) {
+                        parseBlock(block, partial);
+                    }
+                    if (block.data != null) {
+                        recycle(block.data);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Throwable e) {
+                abort(e);
+            }
+        }
+
+        private void parseBlock(Block block, PartialTotals partial) {
+            long start = System.nanoTime();
+            if (block.region != null) {
+                partial.parser.parse(block.region, true, partial);
+            } else {
+                partial.parser.parse(block.data, 0, block.length, block.inProducts, partial);
+            }
+            partial.addFileTotal(block.salesmanIndex);
+            metrics.record(PipelineMetrics.Stage.PARSE, start);
+            partial.flushCounts();
+        }
+
+        private void recycle(byte[] buffer) {
+            if (buffer.length == BLOCK_SIZE) {
+                freeBuffers.offer(buffer);
+            }
+        }
+    }
+
+    private static int lastNewline(byte[] buffer, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (SalesLineParser.isLineEnd(buffer[i])) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Archivo de ventas, o región mapeada de un segmento, asociado a la
+     * posición de su vendedor.
+     */
+    private static class SalesFile {
+
+        final int salesmanIndex;
+        final Path path;
+        final long size;
+        final ByteBuffer region;
+
+        SalesFile(int salesmanIndex, Path path, long size, ByteBuffer region) {
+            this.salesmanIndex = salesmanIndex;
+            this.path = path;
+            this.size = size;
+            this.region = region;
+        }
+    }
+
+    /**
+     * Bloque de líneas completas de un archivo de ventas, leído en un búfer
+     * o mapeado desde un segmento.
+     */
+    private static class Block {
+
+        static final Block END = new Block(new byte[0], 0, -1, false);
+
+        final byte[] data;
+        final int length;
+        final int salesmanIndex;
+        final boolean inProducts;
+        final ByteBuffer region;
+
+        Block(byte[] data, int length, int salesmanIndex, boolean inProducts) {
+            this.data = data;
+            this.length = length;
+            this.salesmanIndex = salesmanIndex;
+            this.inProducts = inProducts;
+            this.region = null;
+        }
+
+        Block(ByteBuffer region, int salesmanIndex) {
+            this.data = null;
+            this.length = region.remaining();
+            this.salesmanIndex = salesmanIndex;
+            this.inProducts = true;
+            this.region = region;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package org.poli.main;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.poli.generatefiles.Product;
+
+/**
+ * Catálogo compacto de productos. Cada ID de producto recibe una sola vez una
+ * posición densa y los precios se guardan en un {@code int[]}, de modo que
+ * los acumuladores pueden ser arreglos primitivos indexados por esa posición.
+ *
+ * <p>
+ * Cuando los IDs siguen el patrón {@code P%03d} de
+ * {@link org.poli.generatefiles.SalesDataGenerator}
+ * ({@code P001}, {@code P002}, ...), la posición se calcula a partir de los
+ * dígitos sin consultar ninguna tabla. Los demás IDs se resuelven con un
+ * {@link ProductIdTable}.
+ * </p>
+ */
+public class ProductCatalog {
+
+    private final String[] ids;
+    private final int[] prices;
+    private final boolean sequentialIds;
+    private final ProductIdTable table;
+
+    /**
+     * Construye el catálogo a partir de la lista de productos.
+     *
+     * @param products Productos del catálogo
+     */
+    public ProductCatalog(List<Product> products) {
+        ids = new String[products.size()];
+        prices = new int[products.size()];
+        boolean sequential = true;
+        for (int i = 0; i < ids.length; i++) {
+            Product product = products.get(i);
+            ids[i] = product.getId();
+            prices[i] = product.getPrice();
+            byte[] id = ids[i].getBytes(StandardCharsets.UTF_8);
+            sequential &= sequentialIndexOf(id, 0, id.length) == i;
+        }
+        sequentialIds = sequential;
+        table = sequential ? null : new ProductIdTable(ids);
+    }
+
+    /**
+     * Obtiene el número de productos del catálogo.
+     *
+     * @return Cantidad de productos
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Calcula una huella del catálogo (IDs, orden y precios). Cambia si
+     * cambia cualquier producto, lo que invalida los totales guardados.
+     *
+     * @return Huella de 64 bits
+     */
+    public long fingerprint() {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < ids.length; i++) {
+            for (byte b : ids[i].getBytes(StandardCharsets.UTF_8)) {
+                hash = (hash ^ b) * 0x100000001b3L;
+            }
+            hash = (hash ^ prices[i]) * 0x100000001b3L;
+        }
+        return hash ^ ids.length;
+    }
+
+    /**
+     * Obtiene el ID del producto en la posición dada.
+     *
+     * @param index Posición del producto
+     * @return ID del producto
+     */
+    public String getId(int index) {
+        return ids[index];
+    }
+
+    /**
+     * Obtiene el precio del producto en la posición dada.
+     *
+     * @param index Posición del producto
+     * @return Precio del producto
+     */
+    public int getPrice(int index) {
+        return prices[index];
+    }
+
+    /**
+     * Busca la posición del ID de producto dado.
+     *
+     * @param productId ID del producto
+     * @return Posición del producto, o -1 si no está en el catálogo
+     */
+    public int indexOf(String productId) {
+        byte[] bytes = productId.getBytes(StandardCharsets.UTF_8);
+        return indexOf(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Busca la posición del ID cuyos bytes ocupan {@code buf[off, off + len)}.
+     *
+     * @param buf Arreglo con los bytes
+     * @param off Posición inicial del ID
+     * @param len Longitud en bytes del ID
+     * @return Posición del producto, o -1 si no está en el catálogo
+     */
+    public int indexOf(byte[] buf, int off, int len) {
+        return sequentialIds ? sequentialIndexOf(buf, off, len) : table.lookup(buf, off, len);
+    }
+
+    /**
+     * Calcula la posición de un ID con formato {@code P%03d}. Solo acepta la
+     * forma canónica, por lo que {@code P0001} no equivale a {@code P001}.
+     */
+    private int sequentialIndexOf(byte[] buf, int off, int len) {
+        if (len < 4 || len > 11 || buf[off] != 'P') {
+            return -1;
+        }
+        long number = 0;
+        for (int i = off + 1; i < off + len; i++) {
+            int digit = buf[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            number = number * 10 + digit;
+        }
+        if (number < 1 || number > ids.length || len != 1 + Math.max(3, digits(number))) {
+            return -1;
+        }
+        return (int) number - 1;
+    }
+
+    private static int digits(long number) {
+        int digits = 1;
+        while (number >= 10) {
+            number /= 10;
+            digits++;
+        }
+        return digits;
+    }
+}
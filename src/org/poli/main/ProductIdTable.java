@@ -0,0 +1,77 @@
+package org.poli.main;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Tabla de búsqueda construida una sola vez con los IDs de producto conocidos.
+ * Permite obtener la posición de un ID directamente desde sus bytes, sin crear
+ * cadenas intermedias.
+ */
+public class ProductIdTable {
+
+    private final byte[][] keys;
+    private final int[] values;
+    private final int mask;
+
+    /**
+     * Construye la tabla con los IDs dados.
+     *
+     * @param productIds IDs de producto conocidos; la posición de cada ID es
+     * el valor que devuelve {@link #lookup(byte[], int, int)}
+     */
+    public ProductIdTable(String[] productIds) {
+        int capacity = Integer.highestOneBit(Math.max(4, productIds.length * 2 - 1)) << 1;
+        keys = new byte[capacity][];
+        values = new int[capacity];
+        mask = capacity - 1;
+        for (int i = 0; i < productIds.length; i++) {
+            byte[] key = productIds[i].getBytes(StandardCharsets.UTF_8);
+            int slot = hash(key, 0, key.length) & mask;
+            while (keys[slot] != null && !equals(keys[slot], key, 0, key.length)) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            values[slot] = i;
+        }
+    }
+
+    /**
+     * Busca el ID cuyos bytes ocupan {@code buf[off, off + len)}.
+     *
+     * @param buf Arreglo con los bytes de la línea
+     * @param off Posición inicial del ID
+     * @param len Longitud en bytes del ID
+     * @return Posición del ID conocido, o -1 si no está en la tabla
+     */
+    public int lookup(byte[] buf, int off, int len) {
+        int slot = hash(buf, off, len) & mask;
+        byte[] key;
+        while ((key = keys[slot]) != null) {
+            if (equals(key, buf, off, len)) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private static int hash(byte[] buf, int off, int len) {
+        int h = 0;
+        for (int i = off; i < off + len; i++) {
+            h = 31 * h + buf[i];
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean equals(byte[] key, byte[] buf, int off, int len) {
+        if (key.length != len) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (key[i] != buf[off + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
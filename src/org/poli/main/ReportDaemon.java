@@ -0,0 +1,208 @@
+package org.poli.main;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.poli.generatefiles.Salesman;
+
+/**
+ * Servicio residente de reportes: carga los catálogos una sola vez, vigila
+ * el directorio de datos y mantiene los totales en memoria.
+ *
+ * <p>
+ * Cada cambio en un archivo de ventas ({@code sales_<id>_<n>.csv}) o en un
+ * segmento compactado marca los totales como pendientes. Cuando pasa el
+ * tiempo de espera sin cambios nuevos, se vuelve a recorrer el directorio y
+ * un {@link SalesCheckpoint} en memoria se actualiza con
+ * {@link IncrementalAggregator}: solo se interpretan los archivos nuevos o
+ * modificados, y los eliminados se restan. Si los cambios no se detienen,
+ * se publica igual tras {@value #MAX_DELAY_FACTOR} veces la espera.
+ * </p>
+ *
+ * <p>
+ * Los reportes se publican con {@link ReportWriter}, que los escribe en un
+ * archivo temporal y los renombra sobre el anterior, de modo que un lector
+ * nunca ve un reporte a medias. Los totales vigentes se pueden consultar
+ * desde otros hilos con {@link #getTotals()}.
+ * </p>
+ */
+public class ReportDaemon implements Runnable, Closeable {
+
+    private static final int MAX_DELAY_FACTOR = 10;
+    private static final String SALES_REPORT = "sales_report.csv";
+    private static final String PRODUCTS_REPORT = "products_report.csv";
+    private static final String SALES_MATRIX = "sales_matrix.csv";
+
+    private final List<Salesman> salesmen;
+    private final ReportOptions options;
+    private final PipelineMetrics metrics;
+    private final Path dataDir;
+    private final Path checkpointFile;
+    private final SalesCheckpoint checkpoint;
+    private final IncrementalAggregator aggregator;
+    private final WatchService watcher;
+    private final List<Consumer<SalesTotals>> listeners = new CopyOnWriteArrayList<>();
+    private SalesFileIndex lastIndex;
+    private volatile SalesTotals totals;
+
+    /**
+     * Crea el servicio y empieza a vigilar el directorio de datos.
+     *
+     * @param catalog Catálogo de productos con sus precios
+     * @param salesmen Vendedores a reportar
+     * @param options Opciones de los reportes
+     * @param metrics Métricas acumuladas del servicio
+     * @param dataDir Directorio con los archivos de ventas y los reportes
+     * @param checkpointFile Punto de control del que se parte y que se
+     * actualiza tras cada publicación, o {@code null} para empezar desde
+     * cero
+     * @throws IOException Si no se puede vigilar el directorio o leer el
+     * punto de control
+     */
+    public ReportDaemon(ProductCatalog catalog, List<Salesman> salesmen, ReportOptions options,
+            PipelineMetrics metrics, Path dataDir, Path checkpointFile) throws IOException {
+        this.salesmen = salesmen;
+        this.options = options;
+        this.metrics = metrics;
+        this.dataDir = dataDir;
+        this.checkpointFile = checkpointFile;
+        this.checkpoint = checkpointFile != null
+                ? SalesCheckpoint.load(checkpointFile, catalog)
+                : new SalesCheckpoint(catalog);
+        this.aggregator = new IncrementalAggregator(catalog, options.getThreads(), metrics, options.isMatrix());
+        this.watcher = dataDir.getFileSystem().newWatchService();
+        dataDir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+    }
+
+    /**
+     * Publica los reportes iniciales y atiende los cambios del directorio
+     * hasta que el servicio se cierre o el hilo se interrumpa.
+     */
+    @Override
+    public void run() {
+        refresh();
+        System.out.println("👀 Vigilando " + dataDir + " (espera de " + options.getDebounceMillis() + " ms).");
+        try {
+            while (true) {
+                if (!drainEvents(watcher.take())) {
+                    continue;
+                }
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(
+                        options.getDebounceMillis() * MAX_DELAY_FACTOR);
+                WatchKey key;
+                while (System.nanoTime() < deadline
+                        && (key = watcher.poll(options.getDebounceMillis(), TimeUnit.MILLISECONDS)) != null) {
+                    drainEvents(key);
+                }
+                refresh();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // cierre normal del servicio
+        }
+    }
+
+    /**
+     * Consume los eventos de una clave y la rearma.
+     *
+     * @param key Clave con eventos del directorio
+     * @return {@code true} si algún evento afecta a un archivo de ventas o a
+     * un segmento, o si se perdieron eventos
+     */
+    private boolean drainEvents(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            String name = event.context() != null ? event.context().toString() : "";
+            changed |= event.kind() == StandardWatchEventKinds.OVERFLOW
+                    || SalesFileIndex.parseSalesmanId(name) != null || SalesSegment.isSegmentName(name);
+        }
+        if (!key.reset()) {
+            throw new ClosedWatchServiceException();
+        }
+        return changed;
+    }
+
+    /**
+     * Actualiza los totales con el contenido actual del directorio y publica
+     * los reportes. Un error se informa y se reintenta en el siguiente
+     * cambio.
+     */
+    private void refresh() {
+        try {
+            long start = System.nanoTime();
+            SalesFileIndex index = SalesFileIndex.scan(dataDir, lastIndex);
+            lastIndex = index;
+            start = metrics.record(PipelineMetrics.Stage.SCAN, start);
+            SalesTotals updated = aggregator.update(checkpoint, salesmen, index);
+            metrics.record(PipelineMetrics.Stage.AGGREGATE, start);
+            totals = updated;
+            listeners.forEach(listener -> listener.accept(updated));
+            publish(updated);
+            if (checkpointFile != null) {
+                checkpoint.save(checkpointFile);
+            }
+            metrics.export(dataDir);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("❌ Error al actualizar los reportes: " + e.getMessage());
+        }
+    }
+
+    private void publish(SalesTotals current) throws IOException {
+        String suffix = options.getReportSuffix();
+        Path sales = dataDir.resolve(SALES_REPORT + suffix);
+        Path products = dataDir.resolve(PRODUCTS_REPORT + suffix);
+        Main.writeSalesReport(current, options, metrics, sales);
+        Main.writeProductsReport(current, options, metrics, products);
+        System.out.println("✅ Reportes publicados en: " + sales + " y " + products);
+        if (current.getCube() != null) {
+            Path matrix = dataDir.resolve(SALES_MATRIX + suffix);
+            Main.writeSalesMatrix(current, options, metrics, matrix);
+            System.out.println("✅ Matriz de ventas publicada en: " + matrix);
+        }
+    }
+
+    /**
+     * Obtiene los totales de la última actualización. El objeto devuelto no
+     * cambia; cada actualización publica uno nuevo.
+     *
+     * @return Totales vigentes, o {@code null} antes de la primera
+     * actualización
+     */
+    public SalesTotals getTotals() {
+        return totals;
+    }
+
+    /**
+     * Registra una acción que recibe los totales tras cada actualización,
+     * desde el hilo del servicio.
+     *
+     * @param listener Acción a ejecutar con los totales nuevos
+     */
+    public void addListener(Consumer<SalesTotals> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Deja de vigilar el directorio; {@link #run()} termina en cuanto lo
+     * advierte.
+     */
+    @Override
+    public void close() {
+        try {
+            watcher.close();
+        } catch (IOException e) {
+            System.err.println("⚠️ No se pudo cerrar la vigilancia de " + dataDir + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,416 @@
+package org.poli.main;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Opciones de línea de comandos para la generación de reportes.
+ *
+ * <pre>
+ * --threads N              Número de hilos para procesar archivos de ventas (por defecto 1)
+ * --mmap-threshold BYTES   Tamaño a partir del cual un archivo se lee mapeado en memoria
+ *                          (por defecto 64 MiB)
+ * --price-scale N          Decimales de los precios del catálogo, que se guardan como
+ *                          enteros en la unidad mínima (p. ej. 2 = centavos). Los totales
+ *                          se acumulan exactos y se reportan con N decimales, de 0 a 9
+ *                          (por defecto 0)
+ * --incremental            Reprocesa solo los archivos de ventas nuevos o modificados desde la
+ *                          ejecución anterior, usando el punto de control guardado en data/
+ * --top N                  Reporta solo los N vendedores y productos con mayores ventas, sin
+ *                          ordenar la lista completa (por defecto se reportan todos)
+ * --pipeline               Lee los archivos en bloques con hilos lectores y los interpreta con
+ *                          --threads hilos, comunicados por una cola acotada (no aplica con
+ *                          --incremental)
+ * --readers N              Hilos lectores del modo --pipeline (por defecto 1)
+ * --sort-budget N          Ordena los reportes completos con a lo sumo N entradas en memoria,
+ *                          escribiendo el resto en corridas temporales en data/ (por defecto
+ *                          se ordena todo en memoria; no aplica con --top)
+ * --watch                  Queda en ejecución vigilando data/: los archivos de ventas nuevos,
+ *                          modificados o eliminados se reflejan en los totales en memoria y
+ *                          los reportes se vuelven a publicar, respetando --top y
+ *                          --sort-budget (no aplica con --shard, --pipeline, --partial ni
+ *                          --merge)
+ * --debounce-ms N          Espera sin cambios antes de publicar en modo --watch (por defecto
+ *                          1000 ms)
+ * --http PORT              Atiende consultas HTTP sobre los totales en localhost:PORT (ver
+ *                          {@link ReportServer}); sin --watch, el proceso queda atendiendo
+ *                          tras escribir los reportes hasta que se lo detiene (Ctrl+C), y
+ *                          entonces cierra el servidor
+ * --shard K/N              Procesa solo la parte K (de 0 a N-1) de los archivos de ventas,
+ *                          repartidos por un hash estable de su nombre; con --incremental,
+ *                          cada parte usa su propio punto de control
+ * --partial FILE           En lugar de los reportes, escribe un agregado parcial combinable
+ *                          (ver {@link PartialAggregate})
+ * --merge FILE...          No lee archivos de ventas: combina los agregados parciales dados y
+ *                          genera los reportes a partir del resultado (no aplica con
+ *                          --incremental, --pipeline, --threads ni --mmap-threshold)
+ * --matrix                 Construye además el cubo vendedor × producto en la misma pasada,
+ *                          lo exporta en data/sales_matrix.csv y habilita las consultas de
+ *                          desglose de --http (no aplica con --partial ni --merge)
+ * --compress-reports       Escribe los reportes y la matriz comprimidos con gzip
+ *                          (sales_report.csv.gz, ...)
+ * </pre>
+ */
+public class ReportOptions {
+
+    /**
+     * Umbral por defecto para leer un archivo de ventas mapeado en memoria.
+     */
+    public static final long DEFAULT_MMAP_THRESHOLD = 64L * 1024 * 1024;
+
+    /**
+     * Espera por defecto antes de publicar los reportes en modo vigilancia.
+     */
+    public static final long DEFAULT_DEBOUNCE_MILLIS = 1000;
+
+    private static final int MAX_PRICE_SCALE = 9;
+
+    private int threads = 1;
+    private long mmapThreshold = DEFAULT_MMAP_THRESHOLD;
+    private int priceScale;
+    private boolean incremental;
+    private int top;
+    private int sortBudget;
+    private boolean pipeline;
+    private int readers = 1;
+    private boolean watch;
+    private long debounceMillis = DEFAULT_DEBOUNCE_MILLIS;
+    private int httpPort;
+    private int shard;
+    private int shardCount = 1;
+    private Path partialFile;
+    private final List<Path> mergeFiles = new ArrayList<>();
+    private boolean matrix;
+    private boolean compressReports;
+
+    /**
+     * Interpreta los argumentos de línea de comandos.
+     *
+     * @param args Argumentos recibidos por {@link Main#main(String[])}
+     * @return Opciones interpretadas
+     * @throws IllegalArgumentException Si algún argumento es inválido
+     */
+    public static ReportOptions parse(String[] args) {
+        ReportOptions options = new ReportOptions();
+        boolean readOptionGiven = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--threads":
+                    options.threads = (int) parsePositive(args, ++i, Integer.MAX_VALUE);
+                    readOptionGiven = true;
+                    break;
+                case "--mmap-threshold":
+                    options.mmapThreshold = parsePositive(args, ++i, Long.MAX_VALUE);
+                    readOptionGiven = true;
+                    break;
+                case "--price-scale":
+                    options.priceScale = (int) parseRange(args, ++i, 0, MAX_PRICE_SCALE);
+                    break;
+                case "--incremental":
+                    options.incremental = true;
+                    break;
+                case "--top":
+                    options.top = (int) parsePositive(args, ++i, Integer.MAX_VALUE);
+                    break;
+                case "--pipeline":
+                    options.pipeline = true;
+                    break;
+                case "--readers":
+                    options.readers = (int) parsePositive(args, ++i, Integer.MAX_VALUE);
+                    break;
+                case "--sort-budget":
+                    options.sortBudget = (int) parsePositive(args, ++i, Integer.MAX_VALUE);
+                    break;
+                case "--watch":
+                    options.watch = true;
+                    break;
+                case "--debounce-ms":
+                    options.debounceMillis = parsePositive(args, ++i, Integer.MAX_VALUE);
+                    break;
+                case "--http":
+                    options.httpPort = (int) parsePositive(args, ++i, 65535);
+                    break;
+                case "--shard":
+                    options.parseShard(args, ++i);
+                    break;
+                case "--partial":
+                    options.partialFile = Paths.get(parseValue(args, ++i));
+                    break;
+                case "--merge":
+                    while (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                        options.mergeFiles.add(Paths.get(args[++i]));
+                    }
+                    if (options.mergeFiles.isEmpty()) {
+                        throw new IllegalArgumentException("Falta el valor para --merge");
+                    }
+                    break;
+                case "--matrix":
+                    options.matrix = true;
+                    break;
+                case "--compress-reports":
+                    options.compressReports = true;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Argumento desconocido: " + args[i]);
+            }
+        }
+        if (options.pipeline && options.incremental) {
+            throw new IllegalArgumentException("--pipeline no se puede combinar con --incremental");
+        }
+        if (options.sortBudget > 0 && options.top > 0) {
+            throw new IllegalArgumentException("--sort-budget no se puede combinar con --top");
+        }
+        if (!options.mergeFiles.isEmpty() && (options.partialFile != null || options.shardCount > 1)) {
+            throw new IllegalArgumentException("--merge no se puede combinar con --partial ni --shard");
+        }
+        if (!options.mergeFiles.isEmpty() && (options.incremental || options.pipeline || readOptionGiven)) {
+            throw new IllegalArgumentException(
+                    "--merge no se puede combinar con --incremental, --pipeline, --threads ni --mmap-threshold");
+        }
+        if (options.watch && (options.partialFile != null || !options.mergeFiles.isEmpty()
+                || options.shardCount > 1 || options.pipeline)) {
+            throw new IllegalArgumentException(
+                    "--watch no se puede combinar con --partial, --merge, --shard ni --pipeline");
+        }
+        if (options.matrix && (options.partialFile != null || !options.mergeFiles.isEmpty())) {
+            throw new IllegalArgumentException("--matrix no se puede combinar con --partial ni --merge");
+        }
+        return options;
+    }
+
+    /**
+     * Lee una parte con formato {@code K/N}.
+     *
+     * @param args Argumentos de línea de comandos
+     * @param i Posición del valor
+     */
+    private void parseShard(String[] args, int i) {
+        String value = parseValue(args, i);
+        int slash = value.indexOf('/');
+        try {
+            if (slash > 0) {
+                int k = Integer.parseInt(value.substring(0, slash));
+                int n = Integer.parseInt(value.substring(slash + 1));
+                if (n > 0 && k >= 0 && k < n) {
+                    shard = k;
+                    shardCount = n;
+                    return;
+                }
+            }
+        } catch (NumberFormatException e) {
+            // se reporta abajo
+        }
+        throw new IllegalArgumentException("Valor inválido para " + args[i - 1] + ": " + value);
+    }
+
+    /**
+     * Lee el valor de una opción.
+     *
+     * @param args Argumentos de línea de comandos
+     * @param i Posición del valor
+     * @return Valor leído
+     */
+    private static String parseValue(String[] args, int i) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException("Falta el valor para " + args[i - 1]);
+        }
+        return args[i];
+    }
+
+    /**
+     * Lee el valor entero positivo de una opción.
+     *
+     * @param args Argumentos de línea de comandos
+     * @param i Posición del valor
+     * @param max Valor máximo permitido
+     * @return Valor leído
+     */
+    private static long parsePositive(String[] args, int i, long max) {
+        return parseRange(args, i, 1, max);
+    }
+
+    /**
+     * Lee el valor entero de una opción dentro de un rango.
+     *
+     * @param args Argumentos de línea de comandos
+     * @param i Posición del valor
+     * @param min Valor mínimo permitido
+     * @param max Valor máximo permitido
+     * @return Valor leído
+     */
+    private static long parseRange(String[] args, int i, long min, long max) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException("Falta el valor para " + args[i - 1]);
+        }
+        try {
+            long value = Long.parseLong(args[i]);
+            if (value >= min && value <= max) {
+                return value;
+            }
+        } catch (NumberFormatException e) {
+            // se reporta abajo
+        }
+        throw new IllegalArgumentException("Valor inválido para " + args[i - 1] + ": " + args[i]);
+    }
+
+    /**
+     * Obtiene el número de hilos de procesamiento.
+     *
+     * @return Número de hilos (1 = modo secuencial)
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Obtiene el tamaño a partir del cual un archivo se lee mapeado en
+     * memoria.
+     *
+     * @return Umbral en bytes
+     */
+    public long getMmapThreshold() {
+        return mmapThreshold;
+    }
+
+    /**
+     * Obtiene la cantidad de decimales de los precios del catálogo.
+     *
+     * @return Decimales de los precios (0 = precios enteros)
+     */
+    public int getPriceScale() {
+        return priceScale;
+    }
+
+    /**
+     * Indica si se usa el modo incremental.
+     *
+     * @return {@code true} si solo se reprocesan los archivos cambiados
+     */
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    /**
+     * Obtiene cuántos vendedores y productos se reportan.
+     *
+     * @return Límite del reporte, o 0 para reportar todos
+     */
+    public int getTop() {
+        return top;
+    }
+
+    /**
+     * Obtiene el número máximo de entradas en memoria al ordenar los
+     * reportes completos.
+     *
+     * @return Presupuesto de entradas, o 0 para ordenar todo en memoria
+     */
+    public int getSortBudget() {
+        return sortBudget;
+    }
+
+    /**
+     * Indica si se usa la agregación en etapas.
+     *
+     * @return {@code true} si la lectura y la interpretación corren en
+     * etapas separadas
+     */
+    public boolean isPipeline() {
+        return pipeline;
+    }
+
+    /**
+     * Obtiene el número de hilos lectores del modo en etapas.
+     *
+     * @return Hilos lectores
+     */
+    public int getReaders() {
+        return readers;
+    }
+
+    /**
+     * Indica si se usa el modo vigilancia.
+     *
+     * @return {@code true} si el proceso queda vigilando el directorio de
+     * datos
+     */
+    public boolean isWatch() {
+        return watch;
+    }
+
+    /**
+     * Obtiene cuánto tiempo sin cambios se espera antes de publicar los
+     * reportes en modo vigilancia.
+     *
+     * @return Espera en milisegundos
+     */
+    public long getDebounceMillis() {
+        return debounceMillis;
+    }
+
+    /**
+     * Obtiene el puerto del servidor de consultas.
+     *
+     * @return Puerto de escucha, o 0 si no se atienden consultas
+     */
+    public int getHttpPort() {
+        return httpPort;
+    }
+
+    /**
+     * Obtiene la parte de los archivos de ventas que procesa este nodo.
+     *
+     * @return Parte, de 0 a {@link #getShardCount()} - 1
+     */
+    public int getShard() {
+        return shard;
+    }
+
+    /**
+     * Obtiene en cuántas partes se reparten los archivos de ventas.
+     *
+     * @return Número de partes (1 = todos los archivos)
+     */
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    /**
+     * Obtiene el archivo donde se escribe el agregado parcial.
+     *
+     * @return Archivo de salida, o {@code null} si se generan los reportes
+     */
+    public Path getPartialFile() {
+        return partialFile;
+    }
+
+    /**
+     * Obtiene los agregados parciales a combinar.
+     *
+     * @return Archivos a combinar, vacía si se leen los archivos de ventas
+     */
+    public List<Path> getMergeFiles() {
+        return Collections.unmodifiableList(mergeFiles);
+    }
+
+    /**
+     * Indica si se construye y exporta el cubo vendedor × producto.
+     *
+     * @return {@code true} si se pidió el cubo
+     */
+    public boolean isMatrix() {
+        return matrix;
+    }
+
+    /**
+     * Obtiene la extensión que se agrega al nombre de los reportes.
+     *
+     * @return {@code .gz} si se pidieron comprimidos, o vacía
+     */
+    public String getReportSuffix() {
+        return compressReports ? Compression.GZIP_SUFFIX : "";
+    }
+}
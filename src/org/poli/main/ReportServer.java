@@ -0,0 +1,318 @@
+package org.poli.main;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.poli.generatefiles.BinaryCatalog;
+import org.poli.generatefiles.Salesman;
+
+/**
+ * Servidor HTTP local de consultas sobre los totales en memoria. Atiende en
+ * la interfaz de loopback, con un hilo virtual por petición, y responde JSON
+ * en UTF-8:
+ *
+ * <pre>
+ * GET /salesmen/top?n=N     Los N vendedores con mayores ventas (por defecto 10)
+ * GET /salesmen/{id}        Total vendido por un vendedor
+ * GET /products/top?n=N     Los N productos más vendidos (por defecto 10)
+ * GET /products/{id}        Cantidad vendida de un producto
+ * </pre>
+ *
+ * <p>
+ * Si los totales traen el cubo vendedor × producto ({@code --matrix}), se
+ * atienden además los desgloses:
+ * </p>
+ *
+ * <pre>
+ * GET /salesmen/{id}/products       Productos de un vendedor, de mayor a menor monto
+ * GET /products/{id}/salesmen?n=N   Los N vendedores que más vendieron un producto
+ * </pre>
+ *
+ * <p>
+ * Con cada {@link #update(SalesTotals)} se construye una vista inmutable con
+ * el índice de vendedores por ID y se publica de una vez; las consultas leen
+ * la vista vigente sin bloquearse ni volver a los archivos. Los rankings se
+ * seleccionan con un montículo acotado a N en cada consulta, sin ordenar las
+ * listas completas, y los productos se buscan por su posición en el catálogo.
+ * </p>
+ */
+public class ReportServer implements Closeable {
+
+    private static final int DEFAULT_LIMIT = 10;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final int priceScale;
+    private volatile Snapshot snapshot;
+
+    private ReportServer(HttpServer server, ExecutorService executor, int priceScale) {
+        this.server = server;
+        this.executor = executor;
+        this.priceScale = priceScale;
+    }
+
+    /**
+     * Inicia el servidor en el puerto dado de la interfaz de loopback. Hasta
+     * el primer {@link #update(SalesTotals)} las consultas responden 503.
+     *
+     * @param port Puerto de escucha
+     * @param priceScale Cantidad de decimales de los precios del catálogo
+     * @return Servidor iniciado
+     * @throws IOException Si no se puede abrir el puerto
+     */
+    public static ReportServer start(int port, int priceScale) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        ReportServer reportServer = new ReportServer(server, executor, priceScale);
+        server.createContext("/salesmen/", reportServer::handleSalesmen);
+        server.createContext("/products/", reportServer::handleProducts);
+        server.setExecutor(executor);
+        server.start();
+        return reportServer;
+    }
+
+    /**
+     * Publica nuevos totales para las consultas siguientes.
+     *
+     * @param totals Totales agregados de los archivos de ventas
+     */
+    public void update(SalesTotals totals) {
+        snapshot = new Snapshot(totals);
+    }
+
+    /**
+     * Obtiene la dirección en la que escucha el servidor.
+     *
+     * @return Dirección y puerto de escucha
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    /**
+     * Detiene el servidor sin esperar a las peticiones en curso.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    private void handleSalesmen(HttpExchange exchange) throws IOException {
+        handle(exchange, "/salesmen/", (view, key, uri) -> {
+            int slash = key.indexOf('/');
+            if (slash >= 0) {
+                return key.substring(slash).equals("/products")
+                        ? salesmanProducts(view, key.substring(0, slash))
+                        : null;
+            }
+            if (key.equals("top")) {
+                List<SalesReports.SalesEntry> top = SalesReports.topSalesmen(view.totals, limit(uri), 1);
+                StringBuilder json = new StringBuilder("[");
+                for (SalesReports.SalesEntry entry : top) {
+                    json.append(json.length() > 1 ? "," : "").append("{\"name\":").append(quote(entry.name))
+                            .append(",\"total\":").append(entry.format(priceScale)).append('}');
+                }
+                return json.append(']').toString();
+            }
+            Integer index = view.salesmanIndex.get(key);
+            if (index == null) {
+                return null;
+            }
+            Salesman salesman = view.totals.getSalesmen().get(index);
+            SalesReports.SalesEntry entry = view.totals.isLargeRevenue(index)
+                    ? new SalesReports.SalesEntry(salesman.getName(), view.totals.getExactRevenue(index))
+                    : new SalesReports.SalesEntry(salesman.getName(), view.totals.getRevenue(index));
+            return "{\"id\":" + salesman.getId() + ",\"name\":" + quote(entry.name) + ",\"total\":"
+                    + entry.format(priceScale) + "}";
+        });
+    }
+
+    private void handleProducts(HttpExchange exchange) throws IOException {
+        handle(exchange, "/products/", (view, key, uri) -> {
+            int slash = key.indexOf('/');
+            if (slash >= 0) {
+                return key.substring(slash).equals("/salesmen")
+                        ? productSalesmen(view, key.substring(0, slash), uri)
+                        : null;
+            }
+            if (key.equals("top")) {
+                List<SalesReports.ProductEntry> top = SalesReports.topProducts(view.totals, limit(uri), 1);
+                StringBuilder json = new StringBuilder("[");
+                for (SalesReports.ProductEntry entry : top) {
+                    json.append(json.length() > 1 ? "," : "").append("{\"id\":").append(quote(entry.id))
+                            .append(",\"quantity\":").append(entry.quantity).append('}');
+                }
+                return json.append(']').toString();
+            }
+            int index = view.totals.getCatalog().indexOf(key);
+            long quantity = index >= 0
+                    ? view.totals.getProductQuantity(index)
+                    : view.totals.getUnknownQuantity(key);
+            if (quantity < 0) {
+                return null;
+            }
+            return "{\"id\":" + quote(key) + ",\"quantity\":" + quantity + "}";
+        });
+    }
+
+    /**
+     * Desglosa por producto las ventas de un vendedor.
+     */
+    private String salesmanProducts(Snapshot view, String id) {
+        SalesCube cube = view.totals.getCube();
+        Integer index = view.salesmanIndex.get(id);
+        if (cube == null || index == null) {
+            return null;
+        }
+        ProductCatalog catalog = view.totals.getCatalog();
+        StringBuilder json = new StringBuilder("[");
+        SalesCube.Slice cells = cube.productsOf(index);
+        for (int i = 0; i < cells.size(); i++) {
+            json.append(json.length() > 1 ? "," : "").append("{\"id\":")
+                    .append(quote(catalog.getId(cells.getProductIndex(i)))).append(",\"quantity\":")
+                    .append(cells.getQuantity(i)).append(",\"total\":").append(cells.format(i, priceScale))
+                    .append('}');
+        }
+        return json.append(']').toString();
+    }
+
+    /**
+     * Clasifica a los vendedores que vendieron un producto.
+     */
+    private String productSalesmen(Snapshot view, String id, URI uri) {
+        SalesCube cube = view.totals.getCube();
+        int index = view.totals.getCatalog().indexOf(id);
+        if (cube == null || index < 0) {
+            return null;
+        }
+        List<Salesman> salesmen = view.totals.getSalesmen();
+        StringBuilder json = new StringBuilder("[");
+        SalesCube.Slice cells = cube.salesmenOf(index, limit(uri));
+        for (int i = 0; i < cells.size(); i++) {
+            Salesman salesman = salesmen.get(cells.getSalesmanIndex(i));
+            json.append(json.length() > 1 ? "," : "").append("{\"id\":").append(salesman.getId())
+                    .append(",\"name\":").append(quote(salesman.getName())).append(",\"quantity\":")
+                    .append(cells.getQuantity(i)).append(",\"total\":").append(cells.format(i, priceScale))
+                    .append('}');
+        }
+        return json.append(']').toString();
+    }
+
+    /**
+     * Consulta sobre la vista vigente.
+     */
+    private interface Query {
+
+        /**
+         * @return Cuerpo JSON de la respuesta, o {@code null} si no existe
+         */
+        String answer(Snapshot view, String key, URI uri);
+    }
+
+    private void handle(HttpExchange exchange, String prefix, Query query) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                send(exchange, 405, "{\"error\":\"Método no permitido\"}");
+                return;
+            }
+            Snapshot view = snapshot;
+            if (view == null) {
+                send(exchange, 503, "{\"error\":\"Los totales aún no están listos\"}");
+                return;
+            }
+            URI uri = exchange.getRequestURI();
+            String key = uri.getPath().substring(prefix.length());
+            String body;
+            try {
+                body = key.isEmpty() ? null : query.answer(view, key, uri);
+            } catch (IllegalArgumentException e) {
+                send(exchange, 400, "{\"error\":" + quote(e.getMessage()) + "}");
+                return;
+            }
+            if (body == null) {
+                send(exchange, 404, "{\"error\":\"No encontrado\"}");
+            } else {
+                send(exchange, 200, body);
+            }
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Lee el parámetro {@code n} de la consulta.
+     */
+    private static int limit(URI uri) {
+        String params = uri.getRawQuery();
+        if (params == null) {
+            return DEFAULT_LIMIT;
+        }
+        for (String param : params.split("&")) {
+            if (param.startsWith("n=")) {
+                try {
+                    int n = Integer.parseInt(param.substring(2));
+                    if (n > 0) {
+                        return n;
+                    }
+                } catch (NumberFormatException e) {
+                    // se reporta abajo
+                }
+                throw new IllegalArgumentException("Valor inválido para n: " + param.substring(2));
+            }
+        }
+        return DEFAULT_LIMIT;
+    }
+
+    private static String quote(String value) {
+        StringBuilder json = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append('"').toString();
+    }
+
+    /**
+     * Vista inmutable de unos totales, con la posición de cada vendedor por
+     * ID.
+     */
+    private static class Snapshot {
+
+        final SalesTotals totals;
+        final Map<String, Integer> salesmanIndex;
+
+        Snapshot(SalesTotals totals) {
+            this.totals = totals;
+            List<Salesman> all = totals.getSalesmen();
+            this.salesmanIndex = new HashMap<>(all.size() * 2);
+            for (int i = 0; i < all.size(); i++) {
+                salesmanIndex.putIfAbsent(String.valueOf(BinaryCatalog.salesmanId(all, i)), i);
+            }
+        }
+    }
+}
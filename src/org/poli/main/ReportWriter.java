@@ -0,0 +1,282 @@
+package org.poli.main;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Escritor de reportes CSV: da formato a los textos y números directamente
+ * en un búfer de bytes reutilizable, siempre en UTF-8, y lo vacía en bloques
+ * grandes con un {@link FileChannel}. No se crea ningún objeto por fila.
+ *
+ * <p>
+ * El contenido se escribe en un archivo temporal del mismo directorio y solo
+ * con {@link #commit()} reemplaza al destino, con un renombrado atómico; quien
+ * lea el reporte mientras se genera ve el anterior completo, nunca uno a
+ * medias. Si el escritor se cierra sin confirmar, el temporal se borra. Si el
+ * destino termina en {@code .gz}, el contenido se comprime con gzip.
+ * </p>
+ */
+public class ReportWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    private static final int MAX_CHAR_BYTES = 4;
+    private static final int MAX_LONG_DIGITS = 20;
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private final Path target;
+    private final Path temp;
+    private final FileChannel channel;
+    private final GZIPOutputStream compressed;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private final ByteBuffer wrapped = ByteBuffer.wrap(buffer);
+    private final byte[] digits = new byte[MAX_LONG_DIGITS];
+    private int position;
+    private boolean committed;
+
+    /**
+     * Crea un escritor para el reporte dado. El destino no se modifica hasta
+     * {@link #commit()}.
+     *
+     * @param target Archivo del reporte
+     * @throws IOException Si no se puede crear el archivo temporal
+     */
+    public ReportWriter(Path target) throws IOException {
+        Compression.Format format = Compression.ofName(target.getFileName().toString());
+        this.target = target;
+        Path dir = target.toAbsolutePath().getParent();
+        Path candidate;
+        FileChannel opened;
+        while (true) {
+            candidate = dir.resolve(target.getFileName() + "."
+                    + Long.toUnsignedString(ThreadLocalRandom.current().nextLong(), 36) + ".tmp");
+            try {
+                // Sin atributos explícitos el archivo toma los permisos
+                // normales (umask), como el reporte que reemplaza.
+                opened = FileChannel.open(candidate, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                break;
+            } catch (FileAlreadyExistsException e) {
+                // nombre ocupado: se prueba otro
+            }
+        }
+        this.temp = candidate;
+        try {
+            this.compressed = format == Compression.Format.GZIP
+                    ? new GZIPOutputStream(Channels.newOutputStream(opened), BUFFER_SIZE)
+                    : null;
+            this.channel = opened;
+        } catch (IOException | RuntimeException e) {
+            opened.close();
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    /**
+     * Escribe un texto en UTF-8. Los caracteres sustitutos sin pareja se
+     * escriben como {@code ?}, igual que al codificar un {@code String}.
+     *
+     * @param text Texto a escribir
+     * @return Este escritor
+     * @throws IOException Si ocurre un error de escritura
+     */
+    public ReportWriter write(String text) throws IOException {
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            if (position > BUFFER_SIZE - MAX_CHAR_BYTES) {
+                flush();
+            }
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                buffer[position++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[position++] = (byte) (0xc0 | c >> 6);
+                buffer[position++] = (byte) (0x80 | c & 0x3f);
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, text.charAt(++i));
+                buffer[position++] = (byte) (0xf0 | cp >> 18);
+                buffer[position++] = (byte) (0x80 | cp >> 12 & 0x3f);
+                buffer[position++] = (byte) (0x80 | cp >> 6 & 0x3f);
+                buffer[position++] = (byte) (0x80 | cp & 0x3f);
+            } else if (Character.isSurrogate(c)) {
+                buffer[position++] = '?';
+            } else {
+                buffer[position++] = (byte) (0xe0 | c >> 12);
+                buffer[position++] = (byte) (0x80 | c >> 6 & 0x3f);
+                buffer[position++] = (byte) (0x80 | c & 0x3f);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Escribe un carácter ASCII, como un separador o un salto de línea.
+     *
+     * @param c Carácter ASCII
+     * @return Este escritor
+     * @throws IOException Si ocurre un error de escritura
+     */
+    public ReportWriter write(char c) throws IOException {
+        if (position == BUFFER_SIZE) {
+            flush();
+        }
+        buffer[position++] = (byte) c;
+        return this;
+    }
+
+    /**
+     * Escribe un entero en decimal.
+     *
+     * @param value Valor a escribir
+     * @return Este escritor
+     * @throws IOException Si ocurre un error de escritura
+     */
+    public ReportWriter write(long value) throws IOException {
+        return writeDecimal(value, 0);
+    }
+
+    /**
+     * Escribe un monto guardado en la unidad mínima como número con los
+     * decimales dados, igual que {@link BigDecimal#toPlainString()}.
+     *
+     * @param unscaled Monto en la unidad mínima
+     * @param scale Cantidad de decimales (0 = entero)
+     * @return Este escritor
+     * @throws IOException Si ocurre un error de escritura
+     */
+    public ReportWriter writeDecimal(long unscaled, int scale) throws IOException {
+        if (unscaled == Long.MIN_VALUE || scale >= POWERS_OF_TEN.length) {
+            return writeDecimal(BigInteger.valueOf(unscaled), scale);
+        }
+        if (position > BUFFER_SIZE - MAX_LONG_DIGITS - 2 - scale) {
+            flush();
+        }
+        if (unscaled < 0) {
+            buffer[position++] = '-';
+            unscaled = -unscaled;
+        }
+        if (scale == 0) {
+            appendDigits(unscaled, 1);
+            return this;
+        }
+        appendDigits(unscaled / POWERS_OF_TEN[scale], 1);
+        buffer[position++] = '.';
+        appendDigits(unscaled % POWERS_OF_TEN[scale], scale);
+        return this;
+    }
+
+    /**
+     * Escribe un monto que no cabe en {@code long}. Es el caso raro, por lo
+     * que pasa por {@link BigDecimal}.
+     *
+     * @param unscaled Monto en la unidad mínima
+     * @param scale Cantidad de decimales (0 = entero)
+     * @return Este escritor
+     * @throws IOException Si ocurre un error de escritura
+     */
+    public ReportWriter writeDecimal(BigInteger unscaled, int scale) throws IOException {
+        return write(scale > 0 ? new BigDecimal(unscaled, scale).toPlainString() : unscaled.toString());
+    }
+
+    /**
+     * Escribe los dígitos de un valor no negativo, con ceros a la izquierda
+     * hasta el ancho mínimo.
+     */
+    private void appendDigits(long value, int minWidth) {
+        int count = 0;
+        do {
+            digits[count++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        while (count < minWidth) {
+            digits[count++] = '0';
+        }
+        while (count > 0) {
+            buffer[position++] = digits[--count];
+        }
+    }
+
+    /**
+     * Escribe en el archivo temporal el contenido acumulado en el búfer.
+     *
+     * @throws IOException Si ocurre un error de escritura
+     */
+    private void flush() throws IOException {
+        if (compressed != null) {
+            compressed.write(buffer, 0, position);
+        } else {
+            wrapped.clear().limit(position);
+            while (wrapped.hasRemaining()) {
+                channel.write(wrapped);
+            }
+        }
+        position = 0;
+    }
+
+    /**
+     * Termina de escribir el archivo temporal, lo fuerza a disco y lo
+     * renombra atómicamente como el reporte.
+     *
+     * @throws IOException Si no se puede escribir o publicar el reporte
+     */
+    public void commit() throws IOException {
+        flush();
+        if (compressed != null) {
+            compressed.finish();
+        }
+        channel.force(false);
+        if (compressed != null) {
+            compressed.close();
+        }
+        channel.close();
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        committed = true;
+    }
+
+    /**
+     * Cierra el escritor; si no se confirmó, borra el archivo temporal y el
+     * reporte anterior queda como estaba.
+     *
+     * @throws IOException Si no se puede cerrar o borrar el temporal
+     */
+    @Override
+    public void close() throws IOException {
+        if (committed) {
+            return;
+        }
+        try {
+            if (compressed != null) {
+                // Libera el Deflater; lo que escriba al terminar se descarta
+                // con el temporal.
+                compressed.close();
+            }
+        } catch (IOException e) {
+            // el temporal se borra de todos modos
+        } finally {
+            try {
+                channel.close();
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package org.poli.main;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+import org.poli.generatefiles.BinaryCatalog;
+import org.poli.generatefiles.Salesman;
+
+/**
+ * Recorre los archivos de ventas una sola vez y acumula, en la misma pasada,
+ * el total vendido por vendedor y la cantidad vendida por producto.
+ *
+ * <p>
+ * Con más de un hilo los archivos se reparten en bloques sobre un
+ * {@link ForkJoinPool}; cada hilo acumula en sus propios totales parciales,
+ * que se combinan al final. El resultado es idéntico al del modo secuencial.
+ * </p>
+ *
+ * <p>
+ * Los archivos que superan el umbral de mapeo se leen con
+ * {@link MappedSalesFile} y sus regiones se reparten entre los hilos como
+ * tareas independientes. Los rangos de los segmentos compactados
+ * ({@link SalesSegment}) se reparten igual, sin abrir archivos; los de
+ * vendedores que no se piden no se leen.
+ * </p>
+ *
+ * <p>
+ * Los archivos comprimidos ({@link Compression}) no se pueden mapear: se
+ * descomprimen en flujo, cada uno en el hilo que lo interpreta, de modo que
+ * con varios hilos la descompresión de distintos archivos corre en paralelo.
+ * </p>
+ *
+ * <p>
+ * Los totales se acumulan en {@code long} con {@link Math#multiplyExact} y
+ * {@link Math#addExact}. Solo si un total desborda {@code long} se pasa a
+ * acumular ese total en {@link BigInteger}, de modo que el caso común no
+ * reserva memoria.
+ * </p>
+ */
+public class SalesAggregator {
+
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final int[] NO_POSITIONS = new int[0];
+
+    private final ProductCatalog catalog;
+    private final int threads;
+    private final long mmapThreshold;
+    private final PipelineMetrics metrics;
+    private final boolean cube;
+
+    /**
+     * Crea un agregador secuencial con el catálogo dado.
+     *
+     * @param catalog Catálogo de productos con sus precios
+     */
+    public SalesAggregator(ProductCatalog catalog) {
+        this(catalog, 1);
+    }
+
+    /**
+     * Crea un agregador con el catálogo y número de hilos dados.
+     *
+     * @param catalog Catálogo de productos con sus precios
+     * @param threads Número de hilos (1 = modo secuencial)
+     */
+    public SalesAggregator(ProductCatalog catalog, int threads) {
+        this(catalog, threads, ReportOptions.DEFAULT_MMAP_THRESHOLD);
+    }
+
+    /**
+     * Crea un agregador con el catálogo, número de hilos y umbral de mapeo en
+     * memoria dados.
+     *
+     * @param catalog Catálogo de productos con sus precios
+     * @param threads Número de hilos (1 = modo secuencial)
+     * @param mmapThreshold Tamaño en bytes a partir del cual un archivo se lee
+     * mapeado en memoria
+     */
+    public SalesAggregator(ProductCatalog catalog, int threads, long mmapThreshold) {
+        this(catalog, threads, mmapThreshold, new PipelineMetrics());
+    }
+
+    /**
+     * Crea un agregador que además registra sus contadores y el tiempo de
+     * cada archivo en las métricas dadas.
+     *
+     * @param catalog Catálogo de productos con sus precios
+     * @param threads Número de hilos (1 = modo secuencial)
+     * @param mmapThreshold Tamaño en bytes a partir del cual un archivo se lee
+     * mapeado en memoria
+     * @param metrics Métricas de la ejecución
+     */
+    public SalesAggregator(ProductCatalog catalog, int threads, long mmapThreshold, PipelineMetrics metrics) {
+        this(catalog, threads, mmapThreshold, metrics, false);
+    }
+
+    /**
+     * Crea un agregador que, si se indica, construye también el cubo
+     * vendedor × producto en la misma pasada.
+     *
+     * @param catalog Catálogo de productos con sus precios
+     * @param threads Número de hilos (1 = modo secuencial)
+     * @param mmapThreshold Tamaño en bytes a partir del cual un archivo se lee
+     * mapeado en memoria
+     * @param metrics Métricas de la ejecución
+     * @param cube {@code true} para construir el cubo (ver
+     * {@link SalesTotals#getCube()})
+     */
+    public SalesAggregator(ProductCatalog catalog, int threads, long mmapThreshold, PipelineMetrics metrics,
+            boolean cube) {
+        this.catalog = catalog;
+        this.threads = Math.max(1, threads);
+        this.mmapThreshold = mmapThreshold;
+        this.metrics = metrics;
+        this.cube = cube;
+    }
+
+    /**
+     * Lee una vez cada archivo de ventas de los vendedores dados.
+     *
+     * @param salesmen Vendedores a agregar
+     * @param index Índice de archivos de ventas por vendedor
+     * @return Totales por vendedor y por producto
+     */
+    public SalesTotals aggregate(List<Salesman> salesmen, SalesFileIndex index) {
+        int salesmanCount = salesmen.size();
+        List<SalesFile> files = new ArrayList<>();
+        List<Consumer<PartialTotals>> tasks = new ArrayList<>();
+        for (int i = 0; i < salesmanCount; i++) {
+            String id = String.valueOf(BinaryCatalog.salesmanId(salesmen, i));
+            for (Path salesFile : index.filesFor(id)) {
+                long size = index.sizeOf(salesFile);
+                if (size >= mmapThreshold && !isCompressed(salesFile)) {
+                    addMappedTasks(tasks, i, salesFile, size);
+                } else {
+                    files.add(new SalesFile(i, salesFile, size));
+                }
+            }
+        }
+        if (!index.segments().isEmpty()) {
+            Map<String, int[]> positions = positionsById(salesmen);
+            for (SalesSegment segment : index.segments()) {
+                for (String id : segment.salesmanIds()) {
+                    for (int i : positions.getOrDefault(id, NO_POSITIONS)) {
+                        addSegmentTasks(tasks, i, segment, id);
+                    }
+                }
+            }
+        }
+
+        int chunks = Math.min(files.size(), threads * CHUNKS_PER_THREAD);
+        for (int c = 0; c < chunks; c++) {
+            int from = (int) ((long) files.size() * c / chunks);
+            int to = (int) ((long) files.size() * (c + 1) / chunks);
+            tasks.add(partial -> aggregateRange(files, from, to, partial));
+        }
+
+        return run(tasks, salesmanCount).toTotals(salesmen);
+    }
+
+    /**
+     * Mapea un archivo grande en regiones y agrega una tarea por región.
+     *
+     * @param tasks Lista de tareas a completar
+     * @param salesmanIndex Posición del vendedor dueño del archivo
+     * @param salesFile Archivo de ventas
+     * @param size Tamaño del archivo en bytes
+     */
+    private void addMappedTasks(List<Consumer<PartialTotals>> tasks, int salesmanIndex, Path salesFile, long size) {
+        try {
+            for (ByteBuffer region : MappedSalesFile.mapProductRegions(salesFile, threads)) {
+                tasks.add(partial -> aggregateRegion(region, salesmanIndex, partial));
+            }
+            metrics.addFile(size);
+        } catch (IOException e) {
+            System.err.println("⚠️ No se pudo leer el archivo: " + salesFile);
+        }
+    }
+
+    private static boolean isCompressed(Path salesFile) {
+        try {
+            return Compression.detect(salesFile) != Compression.Format.NONE;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Agrupa las posiciones de los vendedores por ID, de modo que cada
+     * segmento se recorre una vez por sus propios vendedores en lugar de
+     * buscar en él a cada vendedor de la lista.
+     *
+     * @param salesmen Vendedores, en el orden de sus posiciones
+     * @return Posiciones de cada ID (más de una si el ID está repetido)
+     */
+    static Map<String, int[]> positionsById(List<Salesman> salesmen) {
+        Map<String, int[]> positions = new HashMap<>();
+        for (int i = 0; i < salesmen.size(); i++) {
+            positions.merge(String.valueOf(BinaryCatalog.salesmanId(salesmen, i)), new int[] {i}, (a, b) -> {
+                int[] merged = Arrays.copyOf(a, a.length + 1);
+                merged[a.length] = b[0];
+                return merged;
+            });
+        }
+        return positions;
+    }
+
+    /**
+     * Agrega una tarea por región del rango de un vendedor en un segmento.
+     *
+     * @param tasks Lista de tareas a completar
+     * @param salesmanIndex Posición del vendedor
+     * @param segment Segmento compactado
+     * @param salesmanId ID del vendedor
+     */
+    private void addSegmentTasks(List<Consumer<PartialTotals>> tasks, int salesmanIndex, SalesSegment segment,
+            String salesmanId) {
+        for (ByteBuffer region : segment.regions(salesmanId, threads)) {
+            tasks.add(partial -> aggregateRegion(region, salesmanIndex, partial));
+        }
+        metrics.addFile(segment.sizeOf(salesmanId));
+    }
+
+    /**
+     * Ejecuta las tareas, sobre un pool de hilos si hay más de uno, y combina
+     * los totales parciales de cada hilo.
+     *
+     * @param tasks Tareas a ejecutar
+     * @param salesmanCount Número de vendedores
+     * @return Totales combinados
+     */
+    private PartialTotals run(List<Consumer<PartialTotals>> tasks, int salesmanCount) {
+        PartialTotals result = new PartialTotals(catalog, metrics, salesmanCount, cube);
+        if (threads == 1 || tasks.size() < 2) {
+            for (Consumer<PartialTotals> task : tasks) {
+                task.accept(result);
+            }
+            return result;
+        }
+
+        Queue<PartialTotals> partials = new ConcurrentLinkedQueue<>();
+        ThreadLocal<PartialTotals> workerPartial = ThreadLocal.withInitial(() -> {
+            PartialTotals partial = new PartialTotals(catalog, metrics, salesmanCount, cube);
+            partials.add(partial);
+            return partial;
+        });
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            List<ForkJoinTask<?>> submitted = new ArrayList<>(tasks.size());
+            for (Consumer<PartialTotals> task : tasks) {
+                submitted.add(pool.submit(() -> task.accept(workerPartial.get())));
+            }
+            for (ForkJoinTask<?> task : submitted) {
+                task.join();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        for (PartialTotals partial : partials) {
+            result.merge(partial);
+        }
+        return result;
+    }
+
+    /**
+     * Procesa un rango de archivos acumulando en el total parcial dado.
+     *
+     * @param files Archivos a procesar
+     * @param from Posición inicial (inclusiva)
+     * @param to Posición final (exclusiva)
+     * @param partial Totales parciales del hilo
+     */
+    private void aggregateRange(List<SalesFile> files, int from, int to, PartialTotals partial) {
+        for (int i = from; i < to; i++) {
+            SalesFile file = files.get(i);
+            long start = System.nanoTime();
+            aggregateFile(file.path, partial);
+            partial.addFileTotal(file.salesmanIndex);
+            metrics.record(PipelineMetrics.Stage.PARSE, start);
+            metrics.addFile(file.size);
+            partial.flushCounts();
+        }
+    }
+
+    /**
+     * Procesa una región mapeada de un archivo grande acumulando en el total
+     * parcial dado.
+     *
+     * @param region Región mapeada, alineada a inicio de línea
+     * @param salesmanIndex Posición del vendedor dueño del archivo
+     * @param partial Totales parciales del hilo
+     */
+    private void aggregateRegion(ByteBuffer region, int salesmanIndex, PartialTotals partial) {
+        long start = System.nanoTime();
+        partial.parser.parse(region, true, partial);
+        partial.addFileTotal(salesmanIndex);
+        metrics.record(PipelineMetrics.Stage.PARSE, start);
+        partial.flushCounts();
+    }
+
+    /**
+     * Procesa un archivo de ventas sumando las cantidades por producto. Las
+     * líneas se interpretan a medida que se leen, sin cargar el archivo
+     * completo en memoria.
+     *
+     * @param salesFile Archivo de ventas
+     * @param partial Totales parciales a actualizar
+     */
+    private void aggregateFile(Path salesFile, PartialTotals partial) {
+        try (InputStream in = Compression.open(salesFile)) {
+            partial.parser.parse(in, partial);
+        } catch (IOException e) {
+            System.err.println("⚠️ No se pudo leer el archivo " + salesFile + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Archivo de ventas asociado a la posición de su vendedor.
+     */
+    private static class SalesFile {
+
+        final int salesmanIndex;
+        final Path path;
+        final long size;
+
+        SalesFile(int salesmanIndex, Path path, long size) {
+            this.salesmanIndex = salesmanIndex;
+            this.path = path;
+            this.size = size;
+        }
+    }
+}
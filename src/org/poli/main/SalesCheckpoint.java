@@ -0,0 +1,406 @@
+package org.poli.main;
+
+import java.io.*;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import org.poli.generatefiles.BinaryCatalog;
+import org.poli.generatefiles.Salesman;
+
+/**
+ * Punto de control del modo incremental: manifiesto de los archivos de ventas
+ * ya procesados (nombre, tamaño, fecha de modificación y CRC32), el agregado
+ * parcial de cada uno y los totales acumulados de todos ellos.
+ *
+ * <p>
+ * Los totales se mantienen por diferencia: al cambiar o borrarse un archivo
+ * se resta su agregado parcial, y al aparecer uno nuevo se suma. Los IDs de
+ * producto se guardan como posiciones del catálogo, por lo que el punto de
+ * control solo es válido mientras la huella del catálogo no cambie.
+ * </p>
+ */
+public class SalesCheckpoint {
+
+    private static final int MAGIC = 0x53434b50; // "SCKP"
+    private static final int VERSION = 1;
+
+    private final long catalogFingerprint;
+    private final Map<String, FileEntry> files = new HashMap<>();
+    private final Map<String, BigInteger> revenueBySalesman = new HashMap<>();
+    private final long[] productQuantities;
+    private final long[] productLines;
+    private final Map<String, long[]> unknownProducts = new HashMap<>();
+
+    /**
+     * Crea un punto de control vacío para el catálogo dado.
+     *
+     * @param catalog Catálogo de productos
+     */
+    public SalesCheckpoint(ProductCatalog catalog) {
+        this(catalog.fingerprint(), catalog.size());
+    }
+
+    private SalesCheckpoint(long catalogFingerprint, int catalogSize) {
+        this.catalogFingerprint = catalogFingerprint;
+        this.productQuantities = new long[catalogSize];
+        this.productLines = new long[catalogSize];
+    }
+
+    /**
+     * Carga el punto de control si existe y corresponde al catálogo dado.
+     *
+     * @param path Archivo del punto de control
+     * @param catalog Catálogo de productos actual
+     * @return Punto de control cargado, o uno vacío si no existe o si el
+     * catálogo cambió
+     * @throws IOException Si el archivo existe pero no se puede leer
+     */
+    public static SalesCheckpoint load(Path path, ProductCatalog catalog) throws IOException {
+        if (!Files.exists(path)) {
+            return new SalesCheckpoint(catalog);
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                System.err.println("⚠️ Punto de control con formato desconocido, se reprocesa todo: " + path);
+                return new SalesCheckpoint(catalog);
+            }
+            long fingerprint = in.readLong();
+            int catalogSize = in.readInt();
+            if (fingerprint != catalog.fingerprint() || catalogSize != catalog.size()) {
+                System.out.println("ℹ️ El catálogo cambió, se reprocesan todos los archivos de ventas.");
+                return new SalesCheckpoint(catalog);
+            }
+
+            SalesCheckpoint checkpoint = new SalesCheckpoint(fingerprint, catalogSize);
+            int fileCount = in.readInt();
+            for (int i = 0; i < fileCount; i++) {
+                String name = in.readUTF();
+                checkpoint.files.put(name, FileEntry.read(in));
+            }
+            int salesmanCount = in.readInt();
+            for (int i = 0; i < salesmanCount; i++) {
+                checkpoint.revenueBySalesman.put(in.readUTF(), readBigInteger(in));
+            }
+            for (int i = 0; i < catalogSize; i++) {
+                checkpoint.productQuantities[i] = in.readLong();
+                checkpoint.productLines[i] = in.readLong();
+            }
+            int unknownCount = in.readInt();
+            for (int i = 0; i < unknownCount; i++) {
+                checkpoint.unknownProducts.put(in.readUTF(), new long[] {in.readLong(), in.readLong()});
+            }
+            return checkpoint;
+        }
+    }
+
+    /**
+     * Guarda el punto de control escribiendo primero un archivo temporal y
+     * renombrándolo después, para no dejar un punto de control a medias.
+     *
+     * @param path Archivo del punto de control
+     * @throws IOException Si no se puede escribir
+     */
+    public void save(Path path) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(catalogFingerprint);
+            out.writeInt(productQuantities.length);
+            out.writeInt(files.size());
+            for (Map.Entry<String, FileEntry> entry : files.entrySet()) {
+                out.writeUTF(entry.getKey());
+                entry.getValue().write(out);
+            }
+            out.writeInt(revenueBySalesman.size());
+            for (Map.Entry<String, BigInteger> entry : revenueBySalesman.entrySet()) {
+                out.writeUTF(entry.getKey());
+                writeBigInteger(out, entry.getValue());
+            }
+            for (int i = 0; i < productQuantities.length; i++) {
+                out.writeLong(productQuantities[i]);
+                out.writeLong(productLines[i]);
+            }
+            out.writeInt(unknownProducts.size());
+            for (Map.Entry<String, long[]> entry : unknownProducts.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeLong(entry.getValue()[0]);
+                out.writeLong(entry.getValue()[1]);
+            }
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Obtiene los nombres de los archivos registrados en el manifiesto.
+     *
+     * @return Nombres de archivo
+     */
+    public Set<String> fileNames() {
+        return files.keySet();
+    }
+
+    /**
+     * Obtiene la entrada del manifiesto de un archivo.
+     *
+     * @param name Nombre del archivo
+     * @return Entrada registrada, o {@code null} si no está
+     */
+    public FileEntry get(String name) {
+        return files.get(name);
+    }
+
+    /**
+     * Registra un archivo y suma su agregado parcial a los totales.
+     *
+     * @param name Nombre del archivo
+     * @param entry Entrada con su agregado parcial
+     */
+    public void add(String name, FileEntry entry) {
+        FileEntry previous = files.put(name, entry);
+        if (previous != null) {
+            apply(previous, -1);
+        }
+        apply(entry, 1);
+    }
+
+    /**
+     * Quita un archivo del manifiesto y resta su agregado parcial de los
+     * totales.
+     *
+     * @param name Nombre del archivo
+     */
+    public void remove(String name) {
+        FileEntry previous = files.remove(name);
+        if (previous != null) {
+            apply(previous, -1);
+        }
+    }
+
+    /**
+     * Suma o resta un agregado parcial a los totales.
+     *
+     * @param entry Agregado parcial de un archivo
+     * @param sign 1 para sumar, -1 para restar
+     */
+    private void apply(FileEntry entry, int sign) {
+        BigInteger revenue = sign > 0 ? entry.revenue : entry.revenue.negate();
+        if (revenueBySalesman.merge(entry.salesmanId, revenue, BigInteger::add).signum() == 0) {
+            revenueBySalesman.remove(entry.salesmanId);
+        }
+        addProducts(entry, sign, productQuantities, productLines, unknownProducts);
+    }
+
+    /**
+     * Suma las cantidades y líneas por producto de un archivo, multiplicadas
+     * por {@code factor}, a los acumuladores dados.
+     */
+    private static void addProducts(FileEntry entry, long factor, long[] quantities, long[] lines,
+            Map<String, long[]> unknown) {
+        for (int i = 0; i < entry.productIndexes.length; i++) {
+            int index = entry.productIndexes[i];
+            long quantity = factor * entry.quantities[i];
+            long lineCount = factor * entry.lines[i];
+            if (index >= 0) {
+                quantities[index] += quantity;
+                lines[index] += lineCount;
+            } else {
+                long[] totals = unknown.computeIfAbsent(entry.unknownIds[i], k -> new long[2]);
+                totals[0] += quantity;
+                totals[1] += lineCount;
+                if (totals[1] == 0) {
+                    unknown.remove(entry.unknownIds[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Construye los totales de los vendedores dados a partir de los totales
+     * acumulados. Como en los demás modos, un ID que aparece en varias
+     * posiciones de la lista cuenta sus ventas en cada una; los acumulados
+     * tienen cada archivo una sola vez, así que se suman las copias que
+     * faltan.
+     *
+     * @param salesmen Vendedores del reporte
+     * @param catalog Catálogo de productos
+     * @return Totales equivalentes a procesar todos los archivos registrados
+     */
+    public SalesTotals toTotals(List<Salesman> salesmen, ProductCatalog catalog) {
+        long[] revenue = new long[salesmen.size()];
+        Map<Integer, BigInteger> revenueOverflow = new HashMap<>();
+        for (int i = 0; i < revenue.length; i++) {
+            BigInteger total = revenueBySalesman.get(String.valueOf(BinaryCatalog.salesmanId(salesmen, i)));
+            if (total == null) {
+                continue;
+            }
+            if (total.bitLength() < Long.SIZE) {
+                revenue[i] = total.longValue();
+            } else {
+                revenueOverflow.put(i, total);
+            }
+        }
+
+        long[] quantities = productQuantities.clone();
+        long[] lines = productLines.clone();
+        Map<String, long[]> unknown = new HashMap<>();
+        unknownProducts.forEach((id, totals) -> unknown.put(id, totals.clone()));
+        Map<String, Integer> positions = new HashMap<>();
+        for (int i = 0; i < salesmen.size(); i++) {
+            positions.merge(String.valueOf(BinaryCatalog.salesmanId(salesmen, i)), 1, Integer::sum);
+        }
+        for (FileEntry entry : files.values()) {
+            int copies = positions.getOrDefault(entry.salesmanId, 1) - 1;
+            if (copies > 0) {
+                addProducts(entry, copies, quantities, lines, unknown);
+            }
+        }
+
+        BitSet soldProducts = new BitSet(lines.length);
+        for (int i = 0; i < lines.length; i++) {
+            if (lines[i] > 0) {
+                soldProducts.set(i);
+            }
+        }
+        Map<String, Long> unknownQuantities = new HashMap<>();
+        unknown.forEach((id, totals) -> unknownQuantities.put(id, totals[0]));
+        return new SalesTotals(salesmen, revenue, revenueOverflow, catalog, quantities, soldProducts,
+                unknownQuantities);
+    }
+
+    /**
+     * Construye el cubo vendedor × producto de los vendedores dados a partir
+     * de los agregados de cada archivo registrado.
+     *
+     * @param salesmen Vendedores del reporte
+     * @param catalog Catálogo de productos
+     * @return Cubo equivalente a procesar todos los archivos registrados
+     */
+    public SalesCube toCube(List<Salesman> salesmen, ProductCatalog catalog) {
+        Map<String, List<FileEntry>> entriesBySalesman = new HashMap<>();
+        for (FileEntry entry : files.values()) {
+            entriesBySalesman.computeIfAbsent(entry.salesmanId, k -> new ArrayList<>()).add(entry);
+        }
+        SalesCube.Builder cube = new SalesCube.Builder();
+        for (int s = 0; s < salesmen.size(); s++) {
+            String id = String.valueOf(BinaryCatalog.salesmanId(salesmen, s));
+            for (FileEntry entry : entriesBySalesman.getOrDefault(id, List.of())) {
+                for (int i = 0; i < entry.productIndexes.length; i++) {
+                    if (entry.productIndexes[i] >= 0) {
+                        cube.add(s, entry.productIndexes[i], entry.quantities[i]);
+                    }
+                }
+            }
+        }
+        return cube.build(salesmen, catalog);
+    }
+
+    private static BigInteger readBigInteger(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readUnsignedByte()];
+        in.readFully(bytes);
+        return new BigInteger(bytes);
+    }
+
+    private static void writeBigInteger(DataOutputStream out, BigInteger value) throws IOException {
+        byte[] bytes = value.toByteArray();
+        out.writeByte(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Entrada del manifiesto: identidad del archivo y su agregado parcial.
+     */
+    public static class FileEntry {
+
+        final long size;
+        final long lastModified;
+        final long crc;
+        final String salesmanId;
+        final BigInteger revenue;
+        final int[] productIndexes;
+        final String[] unknownIds;
+        final long[] quantities;
+        final long[] lines;
+
+        /**
+         * Crea una entrada del manifiesto.
+         *
+         * @param size Tamaño del archivo en bytes
+         * @param lastModified Fecha de modificación en milisegundos
+         * @param crc CRC32 del contenido
+         * @param salesmanId ID del vendedor dueño del archivo
+         * @param revenue Total vendido en el archivo
+         * @param productIndexes Posición en el catálogo de cada producto, o -1
+         * si no está en el catálogo
+         * @param unknownIds ID de los productos fuera del catálogo, alineado
+         * con {@code productIndexes}
+         * @param quantities Cantidad vendida de cada producto
+         * @param lines Número de líneas de cada producto
+         */
+        FileEntry(long size, long lastModified, long crc, String salesmanId, BigInteger revenue,
+                int[] productIndexes, String[] unknownIds, long[] quantities, long[] lines) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.crc = crc;
+            this.salesmanId = salesmanId;
+            this.revenue = revenue;
+            this.productIndexes = productIndexes;
+            this.unknownIds = unknownIds;
+            this.quantities = quantities;
+            this.lines = lines;
+        }
+
+        /**
+         * Crea una copia de la entrada con otra fecha de modificación.
+         *
+         * @param lastModified Nueva fecha de modificación
+         * @return Entrada con el mismo agregado parcial
+         */
+        FileEntry withLastModified(long lastModified) {
+            return new FileEntry(size, lastModified, crc, salesmanId, revenue, productIndexes, unknownIds,
+                    quantities, lines);
+        }
+
+        static FileEntry read(DataInputStream in) throws IOException {
+            long size = in.readLong();
+            long lastModified = in.readLong();
+            long crc = in.readLong();
+            String salesmanId = in.readUTF();
+            BigInteger revenue = readBigInteger(in);
+            int count = in.readInt();
+            int[] productIndexes = new int[count];
+            String[] unknownIds = new String[count];
+            long[] quantities = new long[count];
+            long[] lines = new long[count];
+            for (int i = 0; i < count; i++) {
+                productIndexes[i] = in.readInt();
+                if (productIndexes[i] < 0) {
+                    unknownIds[i] = in.readUTF();
+                }
+                quantities[i] = in.readLong();
+                lines[i] = in.readLong();
+            }
+            return new FileEntry(size, lastModified, crc, salesmanId, revenue, productIndexes, unknownIds,
+                    quantities, lines);
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeLong(size);
+            out.writeLong(lastModified);
+            out.writeLong(crc);
+            out.writeUTF(salesmanId);
+            writeBigInteger(out, revenue);
+            out.writeInt(productIndexes.length);
+            for (int i = 0; i < productIndexes.length; i++) {
+                out.writeInt(productIndexes[i]);
+                if (productIndexes[i] < 0) {
+                    out.writeUTF(unknownIds[i]);
+                }
+                out.writeLong(quantities[i]);
+                out.writeLong(lines[i]);
+            }
+        }
+    }
+}
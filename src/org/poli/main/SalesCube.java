@@ -0,0 +1,511 @@
+package org.poli.main;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntBinaryOperator;
+import org.poli.generatefiles.BinaryCatalog;
+import org.poli.generatefiles.Salesman;
+
+/**
+ * Cubo disperso vendedor × producto: cantidad vendida de cada producto del
+ * catálogo por cada vendedor, construido en la misma pasada que los totales.
+ *
+ * <p>
+ * Solo se guardan las celdas con ventas, en formato CSR (filas comprimidas):
+ * para el vendedor {@code s}, sus productos y cantidades ocupan las
+ * posiciones {@code [rowStart[s], rowStart[s + 1])} de {@code rowProducts} y
+ * {@code rowQuantities}, ordenados por posición en el catálogo. Una copia
+ * transpuesta (CSC) guarda, por producto, sus vendedores ordenados de mayor
+ * a menor cantidad. La memoria es proporcional al número de celdas con
+ * ventas, no a vendedores × productos.
+ * </p>
+ *
+ * <p>
+ * Los productos que no están en el catálogo no tienen posición ni precio y
+ * no forman parte del cubo.
+ * </p>
+ */
+public class SalesCube {
+
+    /**
+     * Conjunto de celdas del cubo en arreglos paralelos: posiciones del
+     * vendedor y del producto, cantidad y monto. Los montos se guardan en
+     * {@code long} y solo los que no caben se guardan además exactos.
+     */
+    public static class Slice {
+
+        private final int[] salesmen;
+        private final int[] products;
+        private final long[] quantities;
+        private final long[] revenue;
+        private final BigInteger[] largeRevenue;
+
+        private Slice(int[] salesmen, int[] products, long[] quantities, long[] revenue,
+                BigInteger[] largeRevenue) {
+            this.salesmen = salesmen;
+            this.products = products;
+            this.quantities = quantities;
+            this.revenue = revenue;
+            this.largeRevenue = largeRevenue;
+        }
+
+        /**
+         * @return Número de celdas
+         */
+        public int size() {
+            return products.length;
+        }
+
+        /**
+         * @param i Posición de la celda
+         * @return Posición del vendedor en la lista de vendedores
+         */
+        public int getSalesmanIndex(int i) {
+            return salesmen[i];
+        }
+
+        /**
+         * @param i Posición de la celda
+         * @return Posición del producto en el catálogo
+         */
+        public int getProductIndex(int i) {
+            return products[i];
+        }
+
+        /**
+         * @param i Posición de la celda
+         * @return Cantidad vendida
+         */
+        public long getQuantity(int i) {
+            return quantities[i];
+        }
+
+        /**
+         * Obtiene el monto vendido (precio × cantidad) en la unidad mínima de
+         * los precios. Solo es exacto si {@link #isLargeRevenue(int)} es
+         * {@code false}.
+         *
+         * @param i Posición de la celda
+         * @return Monto vendido
+         */
+        public long getRevenue(int i) {
+            return revenue[i];
+        }
+
+        /**
+         * Indica si el monto de la celda no cabe en {@code long}.
+         *
+         * @param i Posición de la celda
+         * @return {@code true} si debe leerse con {@link #getExactRevenue(int)}
+         */
+        public boolean isLargeRevenue(int i) {
+            return largeRevenue != null && largeRevenue[i] != null;
+        }
+
+        /**
+         * Obtiene el monto vendido exacto.
+         *
+         * @param i Posición de la celda
+         * @return Monto vendido
+         */
+        public BigInteger getExactRevenue(int i) {
+            return isLargeRevenue(i) ? largeRevenue[i] : BigInteger.valueOf(revenue[i]);
+        }
+
+        /**
+         * Da formato al monto, con decimales si los precios los tienen.
+         *
+         * @param i Posición de la celda
+         * @param priceScale Cantidad de decimales de los precios
+         * @return Monto formateado
+         */
+        String format(int i, int priceScale) {
+            if (isLargeRevenue(i)) {
+                return SalesCube.format(largeRevenue[i], priceScale);
+            }
+            return priceScale > 0
+                    ? BigDecimal.valueOf(revenue[i], priceScale).toPlainString()
+                    : Long.toString(revenue[i]);
+        }
+
+        private int compareRevenue(int a, int b) {
+            if (!isLargeRevenue(a) && !isLargeRevenue(b)) {
+                return Long.compare(revenue[a], revenue[b]);
+            }
+            return getExactRevenue(a).compareTo(getExactRevenue(b));
+        }
+
+        private Slice reorder(int[] order) {
+            int count = order.length;
+            int[] orderedSalesmen = new int[count];
+            int[] orderedProducts = new int[count];
+            long[] orderedQuantities = new long[count];
+            long[] orderedRevenue = new long[count];
+            BigInteger[] orderedLarge = largeRevenue != null ? new BigInteger[count] : null;
+            for (int i = 0; i < count; i++) {
+                orderedSalesmen[i] = salesmen[order[i]];
+                orderedProducts[i] = products[order[i]];
+                orderedQuantities[i] = quantities[order[i]];
+                orderedRevenue[i] = revenue[order[i]];
+                if (orderedLarge != null) {
+                    orderedLarge[i] = largeRevenue[order[i]];
+                }
+            }
+            return new Slice(orderedSalesmen, orderedProducts, orderedQuantities, orderedRevenue, orderedLarge);
+        }
+    }
+
+    private final List<Salesman> salesmen;
+    private final ProductCatalog catalog;
+    private final int[] rowStart;
+    private final int[] rowProducts;
+    private final long[] rowQuantities;
+    private final int[] columnStart;
+    private final int[] columnSalesmen;
+    private final long[] columnQuantities;
+
+    private SalesCube(List<Salesman> salesmen, ProductCatalog catalog, int[] rowStart, int[] rowProducts,
+            long[] rowQuantities) {
+        this.salesmen = salesmen;
+        this.catalog = catalog;
+        this.rowStart = rowStart;
+        this.rowProducts = rowProducts;
+        this.rowQuantities = rowQuantities;
+
+        int cells = rowProducts.length;
+        columnStart = new int[catalog.size() + 1];
+        for (int product : rowProducts) {
+            columnStart[product + 1]++;
+        }
+        for (int p = 0; p < catalog.size(); p++) {
+            columnStart[p + 1] += columnStart[p];
+        }
+        columnSalesmen = new int[cells];
+        columnQuantities = new long[cells];
+        int[] next = Arrays.copyOf(columnStart, catalog.size());
+        for (int s = 0; s < salesmen.size(); s++) {
+            for (int c = rowStart[s]; c < rowStart[s + 1]; c++) {
+                int slot = next[rowProducts[c]]++;
+                columnSalesmen[slot] = s;
+                columnQuantities[slot] = rowQuantities[c];
+            }
+        }
+        int longest = 0;
+        for (int p = 0; p < catalog.size(); p++) {
+            longest = Math.max(longest, columnStart[p + 1] - columnStart[p]);
+        }
+        long[] keys = new long[longest];
+        int[] salesmenCopy = new int[longest];
+        long[] quantitiesCopy = new long[longest];
+        for (int p = 0; p < catalog.size(); p++) {
+            sortByQuantity(columnStart[p], columnStart[p + 1], keys, salesmenCopy, quantitiesCopy);
+        }
+    }
+
+    /**
+     * Obtiene el número de celdas con ventas.
+     *
+     * @return Celdas guardadas
+     */
+    public int cellCount() {
+        return rowProducts.length;
+    }
+
+    /**
+     * Desglosa las ventas de un vendedor por producto, de mayor a menor
+     * monto y, en empate, por posición en el catálogo.
+     *
+     * @param salesmanIndex Posición del vendedor
+     * @return Celdas del vendedor
+     */
+    public Slice productsOf(int salesmanIndex) {
+        int from = rowStart[salesmanIndex];
+        int to = rowStart[salesmanIndex + 1];
+        int[] row = new int[to - from];
+        Arrays.fill(row, salesmanIndex);
+        Slice cells = slice(row, Arrays.copyOfRange(rowProducts, from, to),
+                Arrays.copyOfRange(rowQuantities, from, to));
+        return cells.reorder(orderDescending(cells.size(), cells::compareRevenue));
+    }
+
+    /**
+     * Clasifica a los vendedores de un producto de mayor a menor cantidad
+     * y, en empate, por su posición en la lista de vendedores.
+     *
+     * @param productIndex Posición del producto en el catálogo
+     * @param limit Máximo de vendedores a devolver
+     * @return Celdas del producto
+     */
+    public Slice salesmenOf(int productIndex, int limit) {
+        int from = columnStart[productIndex];
+        int to = from + Math.min(limit, columnStart[productIndex + 1] - from);
+        int[] column = new int[to - from];
+        Arrays.fill(column, productIndex);
+        return slice(Arrays.copyOfRange(columnSalesmen, from, to), column,
+                Arrays.copyOfRange(columnQuantities, from, to));
+    }
+
+    /**
+     * Escribe el cubo completo como {@code SalesmanID;ProductID;Quantity;Revenue},
+     * por vendedor en el orden de la lista y por producto en el orden del
+     * catálogo.
+     *
+     * @param priceScale Cantidad de decimales de los precios del catálogo
+     * @param file Archivo de salida, que se reemplaza de forma atómica al
+     * terminar (ver {@link ReportWriter})
+     * @throws IOException Si ocurre un error de escritura
+     */
+    public void writeCsv(int priceScale, Path file) throws IOException {
+        try (ReportWriter writer = new ReportWriter(file)) {
+            writer.write("SalesmanID;ProductID;Quantity;Revenue\n");
+            for (int s = 0; s < salesmen.size(); s++) {
+                long id = BinaryCatalog.salesmanId(salesmen, s);
+                for (int c = rowStart[s]; c < rowStart[s + 1]; c++) {
+                    int product = rowProducts[c];
+                    long quantity = rowQuantities[c];
+                    writer.write(id).write(';').write(catalog.getId(product)).write(';').write(quantity).write(';');
+                    long price = catalog.getPrice(product);
+                    if (fitsInLong(price, quantity)) {
+                        writer.writeDecimal(price * quantity, priceScale);
+                    } else {
+                        writer.writeDecimal(revenue(product, quantity), priceScale);
+                    }
+                    writer.write('\n');
+                }
+            }
+            writer.commit();
+        }
+    }
+
+    private static String format(BigInteger amount, int priceScale) {
+        return priceScale > 0 ? new BigDecimal(amount, priceScale).toPlainString() : amount.toString();
+    }
+
+    /**
+     * Calcula los montos de unas celdas en {@code long}, con
+     * {@link BigInteger} solo para las que no caben.
+     */
+    private Slice slice(int[] salesmen, int[] products, long[] quantities) {
+        long[] revenue = new long[products.length];
+        BigInteger[] largeRevenue = null;
+        for (int i = 0; i < products.length; i++) {
+            long price = catalog.getPrice(products[i]);
+            if (fitsInLong(price, quantities[i])) {
+                revenue[i] = price * quantities[i];
+            } else {
+                if (largeRevenue == null) {
+                    largeRevenue = new BigInteger[products.length];
+                }
+                largeRevenue[i] = revenue(products[i], quantities[i]);
+            }
+        }
+        return new Slice(salesmen, products, quantities, revenue, largeRevenue);
+    }
+
+    private BigInteger revenue(int productIndex, long quantity) {
+        long price = catalog.getPrice(productIndex);
+        return fitsInLong(price, quantity)
+                ? BigInteger.valueOf(price * quantity)
+                : BigInteger.valueOf(price).multiply(BigInteger.valueOf(quantity));
+    }
+
+    /**
+     * Indica si el producto {@code price × quantity} cabe en {@code long}.
+     */
+    private static boolean fitsInLong(long price, long quantity) {
+        long high = Math.multiplyHigh(price, quantity);
+        long low = price * quantity;
+        return (high == 0 && low >= 0) || (high == -1 && low < 0);
+    }
+
+    /**
+     * Ordena una columna por cantidad descendente y, en empate, por vendedor,
+     * que es el orden en que se llenó. Si las cantidades caben en 31 bits,
+     * cada celda se empaqueta en un {@code long} (cantidad invertida arriba,
+     * posición abajo) y se ordena con {@link Arrays#sort(long[], int, int)};
+     * si no, con una mezcla estable sobre posiciones. Los arreglos de trabajo
+     * se reservan una vez para todas las columnas.
+     */
+    private void sortByQuantity(int from, int to, long[] keys, int[] salesmen, long[] quantities) {
+        int count = to - from;
+        if (count < 2) {
+            return;
+        }
+        System.arraycopy(columnSalesmen, from, salesmen, 0, count);
+        System.arraycopy(columnQuantities, from, quantities, 0, count);
+        boolean packed = true;
+        for (int i = 0; i < count && packed; i++) {
+            packed = quantities[i] >= 0 && quantities[i] <= Integer.MAX_VALUE;
+        }
+        int[] order = packed ? null : orderDescending(count, (a, b) -> Long.compare(quantities[a], quantities[b]));
+        if (packed) {
+            for (int i = 0; i < count; i++) {
+                keys[i] = (Integer.MAX_VALUE - quantities[i]) << 32 | i;
+            }
+            Arrays.sort(keys, 0, count);
+        }
+        for (int i = 0; i < count; i++) {
+            int position = packed ? (int) keys[i] : order[i];
+            columnSalesmen[from + i] = salesmen[position];
+            columnQuantities[from + i] = quantities[position];
+        }
+    }
+
+    /**
+     * Ordena las posiciones {@code [0, count)} de mayor a menor según
+     * {@code compare}, de forma estable, con una mezcla ascendente sobre
+     * arreglos primitivos.
+     */
+    private static int[] orderDescending(int count, IntBinaryOperator compare) {
+        int[] order = new int[count];
+        int[] merged = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        for (int width = 1; width < count; width *= 2) {
+            for (int low = 0; low < count; low += 2 * width) {
+                int middle = Math.min(low + width, count);
+                int high = Math.min(low + 2 * width, count);
+                int a = low;
+                int b = middle;
+                int k = low;
+                while (a < middle && b < high) {
+                    merged[k++] = compare.applyAsInt(order[b], order[a]) > 0 ? order[b++] : order[a++];
+                }
+                while (a < middle) {
+                    merged[k++] = order[a++];
+                }
+                while (b < high) {
+                    merged[k++] = order[b++];
+                }
+            }
+            int[] swap = order;
+            order = merged;
+            merged = swap;
+        }
+        return order;
+    }
+
+    /**
+     * Acumula celdas vendedor × producto en una tabla hash de claves
+     * {@code long} sin objetos por celda, y construye el cubo al final. Cada
+     * hilo usa su propio acumulador; se combinan con {@link #merge(Builder)}.
+     */
+    static class Builder {
+
+        private static final long EMPTY = -1L;
+
+        private long[] keys = newKeys(1024);
+        private long[] values = new long[1024];
+        private int size;
+
+        private static long[] newKeys(int capacity) {
+            long[] keys = new long[capacity];
+            Arrays.fill(keys, EMPTY);
+            return keys;
+        }
+
+        /**
+         * Suma una cantidad a una celda.
+         *
+         * @param salesmanIndex Posición del vendedor
+         * @param productIndex Posición del producto en el catálogo
+         * @param quantity Cantidad a sumar
+         */
+        void add(int salesmanIndex, int productIndex, long quantity) {
+            add(((long) salesmanIndex << 32) | productIndex, quantity);
+        }
+
+        private void add(long key, long quantity) {
+            int mask = keys.length - 1;
+            int slot = (int) mix(key) & mask;
+            while (keys[slot] != EMPTY) {
+                if (keys[slot] == key) {
+                    values[slot] += quantity;
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            values[slot] = quantity;
+            if (++size * 3 > keys.length * 2) {
+                grow();
+            }
+        }
+
+        private static long mix(long key) {
+            key *= 0x9e3779b97f4a7c15L;
+            return key ^ (key >>> 32);
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            long[] oldValues = values;
+            keys = newKeys(oldKeys.length * 2);
+            values = new long[oldKeys.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    add(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        /**
+         * Suma las celdas de otro acumulador en este.
+         *
+         * @param other Acumulador a sumar
+         */
+        void merge(Builder other) {
+            for (int i = 0; i < other.keys.length; i++) {
+                if (other.keys[i] != EMPTY) {
+                    add(other.keys[i], other.values[i]);
+                }
+            }
+        }
+
+        /**
+         * Construye el cubo ordenando las celdas por vendedor y producto.
+         *
+         * @param salesmen Vendedores, en el orden de sus posiciones
+         * @param catalog Catálogo de productos
+         * @return Cubo con las celdas acumuladas
+         */
+        SalesCube build(List<Salesman> salesmen, ProductCatalog catalog) {
+            long[] sorted = new long[size];
+            int n = 0;
+            for (long key : keys) {
+                if (key != EMPTY) {
+                    sorted[n++] = key;
+                }
+            }
+            Arrays.sort(sorted);
+            int[] rowStart = new int[salesmen.size() + 1];
+            int[] rowProducts = new int[size];
+            long[] rowQuantities = new long[size];
+            for (int i = 0; i < size; i++) {
+                int salesmanIndex = (int) (sorted[i] >>> 32);
+                rowStart[salesmanIndex + 1]++;
+                rowProducts[i] = (int) sorted[i];
+                rowQuantities[i] = get(sorted[i]);
+            }
+            for (int s = 0; s < salesmen.size(); s++) {
+                rowStart[s + 1] += rowStart[s];
+            }
+            return new SalesCube(salesmen, catalog, rowStart, rowProducts, rowQuantities);
+        }
+
+        private long get(long key) {
+            int mask = keys.length - 1;
+            int slot = (int) mix(key) & mask;
+            while (keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return values[slot];
+        }
+    }
+}
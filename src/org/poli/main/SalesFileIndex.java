@@ -0,0 +1,281 @@
+package org.poli.main;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+
+/**
+ * Índice de los archivos de ventas ({@code sales_<id>_<n>.csv}, o
+ * {@code .csv.gz} si están comprimidos; ver {@link Compression}) de un
+ * directorio, agrupados por ID de vendedor.
+ *
+ * <p>
+ * El directorio se recorre una sola vez y el ID se extrae exactamente del
+ * nombre del archivo, de modo que un ID que sea subcadena de otro no produce
+ * coincidencias falsas.
+ * </p>
+ *
+ * <p>
+ * También se abren los segmentos compactados ({@link SalesSegment}) del
+ * directorio. Un archivo de ventas que ya está copiado en un segmento, con el
+ * mismo tamaño y fecha, no se indexa: queda en
+ * {@link #compactedFiles()} hasta que el compactador lo archive.
+ * </p>
+ */
+public class SalesFileIndex {
+
+    private static final String PREFIX = "sales_";
+    private static final String SUFFIX = ".csv";
+
+    private final Map<String, List<Path>> filesById;
+    private final Map<Path, long[]> attributes;
+    private final List<SalesSegment> segments;
+    private final List<Path> compacted;
+
+    private SalesFileIndex(Map<String, List<Path>> filesById, Map<Path, long[]> attributes,
+            List<SalesSegment> segments, List<Path> compacted) {
+        this.filesById = filesById;
+        this.attributes = attributes;
+        this.segments = segments;
+        this.compacted = compacted;
+    }
+
+    /**
+     * Recorre el directorio una vez y construye el índice.
+     *
+     * @param folder Directorio que contiene los archivos de ventas
+     * @return Índice de archivos por ID de vendedor
+     * @throws IOException Si no se puede listar el directorio
+     */
+    public static SalesFileIndex scan(Path folder) throws IOException {
+        return scan(folder, null);
+    }
+
+    /**
+     * Recorre el directorio una vez y construye el índice, reutilizando los
+     * segmentos de un índice anterior que conservan tamaño y fecha de
+     * modificación: no se vuelven a mapear ni a leer sus índices. Los
+     * mapeos de los segmentos que ya no están se liberan cuando el índice
+     * anterior deja de usarse.
+     *
+     * @param folder Directorio que contiene los archivos de ventas
+     * @param previous Índice anterior del mismo directorio, o {@code null}
+     * @return Índice de archivos por ID de vendedor
+     * @throws IOException Si no se puede listar el directorio
+     */
+    public static SalesFileIndex scan(Path folder, SalesFileIndex previous) throws IOException {
+        Map<String, List<Path>> filesById = new HashMap<>();
+        Map<Path, long[]> attributes = new HashMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder, PREFIX + "*" + SUFFIX + "*")) {
+            for (Path file : stream) {
+                String id = parseSalesmanId(file.getFileName().toString());
+                if (id == null) {
+                    continue;
+                }
+                BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+                if (attrs.isRegularFile()) {
+                    filesById.computeIfAbsent(id, k -> new ArrayList<>()).add(file);
+                    attributes.put(file, new long[] {attrs.size(), attrs.lastModifiedTime().toMillis()});
+                }
+            }
+        }
+
+        List<SalesSegment> segments = new ArrayList<>();
+        Map<Path, long[]> segmentAttributes = new HashMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder, SalesSegment.glob())) {
+            for (Path file : stream) {
+                try {
+                    BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+                    long[] current = {attrs.size(), attrs.lastModifiedTime().toMillis()};
+                    SalesSegment reused = previous != null ? previous.segment(file, current) : null;
+                    segments.add(reused != null ? reused : SalesSegment.open(file));
+                    segmentAttributes.put(file, current);
+                } catch (IOException e) {
+                    System.err.println("⚠️ No se pudo leer el segmento " + file + ": " + e.getMessage());
+                }
+            }
+        }
+        segments.sort(Comparator.comparing(SalesSegment::getPath));
+
+        List<Path> compacted = new ArrayList<>();
+        if (!segments.isEmpty()) {
+            for (List<Path> files : filesById.values()) {
+                files.removeIf(file -> {
+                    long[] attrs = attributes.get(file);
+                    for (SalesSegment segment : segments) {
+                        if (segment.containsSource(file.getFileName().toString(), attrs[0], attrs[1])) {
+                            compacted.add(file);
+                            attributes.remove(file);
+                            return true;
+                        }
+                    }
+                    return false;
+                });
+            }
+            filesById.values().removeIf(List::isEmpty);
+        }
+        attributes.putAll(segmentAttributes);
+
+        for (List<Path> files : filesById.values()) {
+            Collections.sort(files);
+        }
+        Collections.sort(compacted);
+        return new SalesFileIndex(filesById, attributes, segments, compacted);
+    }
+
+    /**
+     * Obtiene la parte de este índice que le corresponde a un nodo cuando
+     * los archivos se reparten entre {@code count} nodos. Cada archivo y
+     * cada segmento va a un único nodo, según un hash estable de su nombre,
+     * de modo que las partes no se solapan y juntas cubren todo el índice.
+     *
+     * @param shard Parte a obtener, de 0 a {@code count - 1}
+     * @param count Número de partes
+     * @return Índice con solo los archivos y segmentos de la parte
+     */
+    public SalesFileIndex shard(int shard, int count) {
+        Map<String, List<Path>> shardFiles = new HashMap<>();
+        filesById.forEach((id, files) -> {
+            for (Path file : files) {
+                if (shardOf(file, count) == shard) {
+                    shardFiles.computeIfAbsent(id, k -> new ArrayList<>()).add(file);
+                }
+            }
+        });
+        List<SalesSegment> shardSegments = new ArrayList<>();
+        for (SalesSegment segment : segments) {
+            if (shardOf(segment.getPath(), count) == shard) {
+                shardSegments.add(segment);
+            }
+        }
+        return new SalesFileIndex(shardFiles, attributes, shardSegments, compacted);
+    }
+
+    /**
+     * Busca un segmento abierto de este índice que conserve el tamaño y la
+     * fecha dados.
+     *
+     * @param file Archivo del segmento
+     * @param attrs Tamaño y fecha de modificación actuales
+     * @return Segmento abierto, o {@code null} si no está o cambió
+     */
+    private SalesSegment segment(Path file, long[] attrs) {
+        long[] known = attributes.get(file);
+        if (known == null || !Arrays.equals(known, attrs)) {
+            return null;
+        }
+        for (SalesSegment segment : segments) {
+            if (segment.getPath().equals(file)) {
+                return segment;
+            }
+        }
+        return null;
+    }
+
+    private static int shardOf(Path file, int count) {
+        return Math.floorMod(file.getFileName().toString().hashCode(), count);
+    }
+
+    /**
+     * Extrae el ID del vendedor de un nombre con formato
+     * {@code sales_<id>_<n>.csv}, con o sin extensión de compresión.
+     *
+     * @param fileName Nombre del archivo
+     * @return ID del vendedor, o {@code null} si el nombre no tiene el formato
+     */
+    static String parseSalesmanId(String fileName) {
+        fileName = Compression.stripSuffix(fileName);
+        if (!fileName.startsWith(PREFIX) || !fileName.endsWith(SUFFIX)) {
+            return null;
+        }
+        int end = fileName.indexOf('_', PREFIX.length());
+        if (end <= PREFIX.length()) {
+            return null;
+        }
+        for (int i = PREFIX.length(); i < end; i++) {
+            if (!Character.isDigit(fileName.charAt(i))) {
+                return null;
+            }
+        }
+        return fileName.substring(PREFIX.length(), end);
+    }
+
+    /**
+     * Obtiene los archivos de ventas de un vendedor.
+     *
+     * @param id ID del vendedor
+     * @return Lista (posiblemente vacía) de archivos del vendedor
+     */
+    public List<Path> filesFor(String id) {
+        return filesById.getOrDefault(id, Collections.emptyList());
+    }
+
+    /**
+     * Obtiene los IDs de vendedor con archivos de ventas indexados.
+     *
+     * @return IDs de vendedor, en orden
+     */
+    public SortedSet<String> salesmanIds() {
+        return new TreeSet<>(filesById.keySet());
+    }
+
+    /**
+     * Obtiene el número total de archivos de ventas indexados, sin contar
+     * los segmentos.
+     *
+     * @return Cantidad de archivos
+     */
+    public int fileCount() {
+        int count = 0;
+        for (List<Path> files : filesById.values()) {
+            count += files.size();
+        }
+        return count;
+    }
+
+    /**
+     * Obtiene los segmentos compactados del directorio, en orden de nombre.
+     *
+     * @return Segmentos abiertos
+     */
+    public List<SalesSegment> segments() {
+        return Collections.unmodifiableList(segments);
+    }
+
+    /**
+     * Obtiene los archivos de ventas que siguen en el directorio pero ya
+     * están copiados en un segmento, y que por eso no se indexaron.
+     *
+     * @return Archivos ya compactados
+     */
+    public List<Path> compactedFiles() {
+        return Collections.unmodifiableList(compacted);
+    }
+
+    /**
+     * Obtiene el tamaño que tenía un archivo indexado al recorrer el
+     * directorio.
+     *
+     * @param file Archivo de ventas o segmento indexado
+     * @return Tamaño en bytes, o -1 si el archivo no está indexado
+     */
+    public long sizeOf(Path file) {
+        long[] attrs = attributes.get(file);
+        return attrs != null ? attrs[0] : -1;
+    }
+
+    /**
+     * Obtiene la fecha de modificación que tenía un archivo indexado al
+     * recorrer el directorio.
+     *
+     * @param file Archivo de ventas o segmento indexado
+     * @return Milisegundos desde la época, o -1 si el archivo no está indexado
+     */
+    public long lastModifiedOf(Path file) {
+        long[] attrs = attributes.get(file);
+        return attrs != null ? attrs[1] : -1;
+    }
+}
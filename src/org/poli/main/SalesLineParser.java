@@ -0,0 +1,338 @@
+package org.poli.main;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Intérprete de archivos de ventas que trabaja directamente sobre bytes.
+ *
+ * <p>
+ * Ignora las líneas hasta encontrar el encabezado {@code ProductID} y desde
+ * ahí decodifica cada línea {@code <productId>;<cantidad>} buscando el
+ * separador {@code ;} sin expresiones regulares ni cadenas intermedias. Los
+ * IDs se resuelven a su posición en el {@link ProductCatalog}; solo los IDs
+ * que no están en el catálogo generan un {@link String} nuevo.
+ * </p>
+ *
+ * <p>
+ * Las líneas pueden terminar en {@code \n}, {@code \r\n} o solo {@code \r},
+ * igual que con {@link java.io.BufferedReader#readLine()}. Las líneas sin
+ * separador, sin cantidad o con una cantidad que no es un entero válido se
+ * omiten y se cuentan como mal formadas.
+ * </p>
+ *
+ * <p>
+ * Cada instancia reutiliza su propio búfer y no es segura para varios hilos.
+ * </p>
+ */
+public class SalesLineParser {
+
+    /**
+     * Recibe cada línea de producto interpretada.
+     */
+    public interface LineHandler {
+
+        /**
+         * Procesa una línea de un producto del catálogo.
+         *
+         * @param productIndex Posición del producto en el catálogo
+         * @param quantity Cantidad vendida
+         */
+        void onProduct(int productIndex, int quantity);
+
+        /**
+         * Procesa una línea de un producto que no está en el catálogo.
+         *
+         * @param productId ID del producto
+         * @param quantity Cantidad vendida
+         */
+        void onUnknownProduct(String productId, int quantity);
+    }
+
+    static final byte[] HEADER = "ProductID".getBytes(StandardCharsets.US_ASCII);
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+    private static final long INVALID_NUMBER = Long.MIN_VALUE;
+
+    private final ProductCatalog catalog;
+    private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+    private boolean readingProducts;
+    private long lines;
+    private long malformedLines;
+
+    /**
+     * Crea un intérprete que resuelve los IDs con el catálogo dado.
+     *
+     * @param catalog Catálogo de productos
+     */
+    public SalesLineParser(ProductCatalog catalog) {
+        this.catalog = catalog;
+    }
+
+    /**
+     * Obtiene el número de líneas de producto no vacías interpretadas por esta
+     * instancia, incluidas las mal formadas.
+     *
+     * @return Líneas acumuladas desde que se creó el intérprete
+     */
+    public long getLines() {
+        return lines;
+    }
+
+    /**
+     * Obtiene el número de líneas de producto omitidas por estar mal
+     * formadas.
+     *
+     * @return Líneas mal formadas acumuladas desde que se creó el intérprete
+     */
+    public long getMalformedLines() {
+        return malformedLines;
+    }
+
+    /**
+     * Lee e interpreta un archivo completo desde el flujo dado.
+     *
+     * @param in Flujo con el contenido del archivo
+     * @param handler Receptor de las líneas de producto
+     * @throws IOException Si falla la lectura
+     */
+    public void parse(InputStream in, LineHandler handler) throws IOException {
+        readingProducts = false;
+        int end = 0;
+        int read;
+        while ((read = in.read(buffer, end, buffer.length - end)) != -1) {
+            end = consume(end + read, handler);
+        }
+        finish(end, handler);
+    }
+
+    /**
+     * Interpreta una región de un archivo (por ejemplo mapeada en memoria)
+     * desde su posición hasta su límite. La región debe empezar al inicio de
+     * una línea.
+     *
+     * @param region Bytes de la región
+     * @param inProducts {@code true} si la región empieza después del
+     * encabezado {@code ProductID}
+     * @param handler Receptor de las líneas de producto
+     */
+    public void parse(ByteBuffer region, boolean inProducts, LineHandler handler) {
+        readingProducts = inProducts;
+        int end = 0;
+        int position = region.position();
+        int limit = region.limit();
+        while (position < limit) {
+            int length = Math.min(buffer.length - end, limit - position);
+            region.get(position, buffer, end, length);
+            position += length;
+            end = consume(end + length, handler);
+        }
+        finish(end, handler);
+    }
+
+    /**
+     * Interpreta en su lugar un bloque de líneas de un archivo, incluida la
+     * última línea aunque no termine en salto de línea. El bloque debe
+     * empezar al inicio de una línea.
+     *
+     * @param buf Bytes del bloque
+     * @param from Posición inicial
+     * @param to Posición final (exclusiva)
+     * @param inProducts {@code true} si el bloque empieza después del
+     * encabezado {@code ProductID}
+     * @param handler Receptor de las líneas de producto
+     */
+    public void parse(byte[] buf, int from, int to, boolean inProducts, LineHandler handler) {
+        readingProducts = inProducts;
+        int consumed = parseLines(buf, from, to, handler);
+        if (from + consumed < to) {
+            parseLine(buf, from + consumed, to, handler);
+        }
+    }
+
+    /**
+     * Indica si alguna línea de {@code buf[from, to)} es el encabezado
+     * {@code ProductID}. El rango debe empezar al inicio de una línea.
+     *
+     * @param buf Bytes a revisar
+     * @param from Posición inicial
+     * @param to Posición final (exclusiva)
+     * @return {@code true} si el rango contiene el encabezado
+     */
+    public static boolean containsHeader(byte[] buf, int from, int to) {
+        int start = from;
+        for (int i = from; i <= to; i++) {
+            if (i == to || isLineEnd(buf[i])) {
+                if (startsWith(buf, start, i, HEADER)) {
+                    return true;
+                }
+                start = i + 1;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Interpreta las líneas completas del búfer y mueve la línea incompleta
+     * al inicio, ampliando el búfer si una sola línea no cabe.
+     *
+     * @param end Cantidad de bytes válidos en el búfer
+     * @param handler Receptor de las líneas de producto
+     * @return Cantidad de bytes que quedan en el búfer
+     */
+    private int consume(int end, LineHandler handler) {
+        int consumed = parseLines(buffer, 0, end, handler);
+        if (consumed > 0) {
+            end -= consumed;
+            System.arraycopy(buffer, consumed, buffer, 0, end);
+        } else if (end == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        return end;
+    }
+
+    /**
+     * Interpreta la última línea si no terminaba en salto de línea.
+     */
+    private void finish(int end, LineHandler handler) {
+        if (end > 0) {
+            parseLine(buffer, 0, end, handler);
+        }
+    }
+
+    /**
+     * Interpreta las líneas completas de {@code buf[from, to)}, continuando el
+     * estado del encabezado de llamadas anteriores.
+     *
+     * @param buf Bytes a interpretar
+     * @param from Posición inicial
+     * @param to Posición final (exclusiva)
+     * @param handler Receptor de las líneas de producto
+     * @return Número de bytes consumidos; la línea incompleta final no se
+     * consume
+     */
+    public int parseLines(byte[] buf, int from, int to, LineHandler handler) {
+        int start = from;
+        for (int i = from; i < to; i++) {
+            if (isLineEnd(buf[i])) {
+                parseLine(buf, start, i, handler);
+                start = i + 1;
+            }
+        }
+        return start - from;
+    }
+
+    /**
+     * Indica si un byte termina una línea. En {@code \r\n} el {@code \n}
+     * cierra una línea vacía, que se ignora.
+     *
+     * @param b Byte a revisar
+     * @return {@code true} si es {@code \n} o {@code \r}
+     */
+    static boolean isLineEnd(byte b) {
+        return b == '\n' || b == '\r';
+    }
+
+    /**
+     * Interpreta una línea sin su salto de línea.
+     *
+     * @param buf Bytes de la línea
+     * @param start Posición inicial
+     * @param end Posición final (exclusiva)
+     * @param handler Receptor de las líneas de producto
+     */
+    private void parseLine(byte[] buf, int start, int end, LineHandler handler) {
+        if (startsWith(buf, start, end, HEADER)) {
+            readingProducts = true;
+            return;
+        }
+        if (!readingProducts) {
+            return;
+        }
+
+        if (end == start) {
+            return;
+        }
+        lines++;
+
+        int separator = indexOf(buf, start, end, (byte) ';');
+        if (separator < 0) {
+            malformedLines++;
+            return;
+        }
+        int quantityEnd = indexOf(buf, separator + 1, end, (byte) ';');
+        if (quantityEnd < 0) {
+            quantityEnd = end;
+        }
+        long parsed = parseInt(buf, separator + 1, quantityEnd);
+        if (parsed == INVALID_NUMBER) {
+            malformedLines++;
+            return;
+        }
+        int quantity = (int) parsed;
+        int idLength = separator - start;
+        int productIndex = catalog.indexOf(buf, start, idLength);
+        if (productIndex >= 0) {
+            handler.onProduct(productIndex, quantity);
+        } else {
+            handler.onUnknownProduct(new String(buf, start, idLength, StandardCharsets.UTF_8), quantity);
+        }
+    }
+
+    /**
+     * Decodifica un entero decimal con signo opcional, con las mismas reglas
+     * que {@link Integer#parseInt(String)}.
+     *
+     * @return El entero, o {@link #INVALID_NUMBER} si el texto no es válido
+     */
+    private static long parseInt(byte[] buf, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (buf[i] == '-' || buf[i] == '+')) {
+            negative = buf[i] == '-';
+            i++;
+        }
+        if (i == end) {
+            return INVALID_NUMBER;
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = buf[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return INVALID_NUMBER;
+            }
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                return INVALID_NUMBER;
+            }
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            return INVALID_NUMBER;
+        }
+        return value;
+    }
+
+    private static int indexOf(byte[] buf, int from, int to, byte value) {
+        for (int i = from; i < to; i++) {
+            if (buf[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean startsWith(byte[] buf, int start, int end, byte[] prefix) {
+        if (end - start < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (buf[start + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
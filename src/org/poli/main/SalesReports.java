@@ -0,0 +1,479 @@
+package org.poli.main;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import org.poli.generatefiles.Salesman;
+
+/**
+ * Ordena los totales agregados y escribe los reportes de ventas y de
+ * productos. Ordenar y escribir están separados para poder medir cada etapa
+ * por su cuenta.
+ *
+ * <p>
+ * Además del orden completo, {@link #topSalesmen} y {@link #topProducts}
+ * obtienen solo los primeros N con un montículo acotado por hilo, en tiempo
+ * O(n log N) y memoria O(N). Ambos modos usan el mismo orden: los vendedores
+ * empatados conservan el orden de la lista de vendedores y los productos
+ * empatados se ordenan por ID ascendente.
+ * </p>
+ *
+ * <p>
+ * Para reportes que no caben en el heap, las variantes con presupuesto de
+ * memoria ordenan con {@link ExternalSorter} y devuelven un resultado que se
+ * escribe mezclando las corridas temporales.
+ * </p>
+ */
+public class SalesReports {
+
+    private static final int MIN_RANGE_PER_THREAD = 4096;
+
+    private static final Comparator<ProductEntry> PRODUCT_ORDER = (a, b) -> {
+        int cmp = Long.compare(b.quantity, a.quantity);
+        return cmp != 0 ? cmp : a.id.compareTo(b.id);
+    };
+
+    private static final ExternalSorter.Codec<SalesEntry> SALES_CODEC = new ExternalSorter.Codec<>() {
+        @Override
+        public void write(DataOutput out, SalesEntry entry) throws IOException {
+            out.writeUTF(entry.name);
+            if (entry.largeTotal == null) {
+                out.writeByte(0);
+                out.writeLong(entry.total);
+            } else {
+                byte[] magnitude = entry.largeTotal.toByteArray();
+                out.writeByte(1);
+                out.writeInt(magnitude.length);
+                out.write(magnitude);
+            }
+        }
+
+        @Override
+        public SalesEntry read(DataInput in) throws IOException {
+            String name = in.readUTF();
+            if (in.readByte() == 0) {
+                return new SalesEntry(name, in.readLong());
+            }
+            byte[] magnitude = new byte[in.readInt()];
+            in.readFully(magnitude);
+            return new SalesEntry(name, new BigInteger(magnitude));
+        }
+    };
+
+    private static final ExternalSorter.Codec<ProductEntry> PRODUCT_CODEC = new ExternalSorter.Codec<>() {
+        @Override
+        public void write(DataOutput out, ProductEntry entry) throws IOException {
+            out.writeUTF(entry.id);
+            out.writeLong(entry.quantity);
+        }
+
+        @Override
+        public ProductEntry read(DataInput in) throws IOException {
+            return new ProductEntry(in.readUTF(), in.readLong());
+        }
+    };
+
+    private SalesReports() {
+    }
+
+    /**
+     * Ordena los vendedores por total descendente. Los empates conservan el
+     * orden de la lista de vendedores.
+     *
+     * @param totals Totales agregados de los archivos de ventas
+     * @return Entradas ordenadas
+     */
+    public static List<SalesEntry> sortSalesmen(SalesTotals totals) {
+        List<Salesman> salesmen = totals.getSalesmen();
+        List<SalesEntry> salesEntries = new ArrayList<>(salesmen.size());
+
+        for (int i = 0; i < salesmen.size(); i++) {
+            String name = salesmen.get(i).getName();
+            salesEntries.add(totals.isLargeRevenue(i)
+                    ? new SalesEntry(name, totals.getExactRevenue(i))
+                    : new SalesEntry(name, totals.getRevenue(i)));
+        }
+
+        salesEntries.sort((a, b) -> b.compareTo(a));
+        return salesEntries;
+    }
+
+    /**
+     * Ordena los vendedores como {@link #sortSalesmen(SalesTotals)} pero con
+     * a lo sumo {@code memoryBudget} entradas en memoria; el resto se escribe
+     * en corridas temporales.
+     *
+     * @param totals Totales agregados de los archivos de ventas
+     * @param memoryBudget Número máximo de entradas en memoria
+     * @param tempDir Directorio para las corridas temporales
+     * @return Resultado ordenado, que debe cerrarse para borrar los
+     * temporales
+     * @throws IOException Si no se pueden escribir las corridas
+     */
+    public static ExternalSorter<SalesEntry> sortSalesmen(SalesTotals totals, int memoryBudget, Path tempDir)
+            throws IOException {
+        ExternalSorter<SalesEntry> sorter = new ExternalSorter<>((a, b) -> b.compareTo(a), SALES_CODEC,
+                memoryBudget, tempDir);
+        try {
+            List<Salesman> salesmen = totals.getSalesmen();
+            for (int i = 0; i < salesmen.size(); i++) {
+                String name = salesmen.get(i).getName();
+                sorter.add(totals.isLargeRevenue(i)
+                        ? new SalesEntry(name, totals.getExactRevenue(i))
+                        : new SalesEntry(name, totals.getRevenue(i)));
+            }
+        } catch (IOException e) {
+            sorter.close();
+            throw e;
+        }
+        return sorter;
+    }
+
+    /**
+     * Escribe el reporte de ventas.
+     *
+     * @param salesEntries Entradas ordenadas
+     * @param priceScale Cantidad de decimales de los precios del catálogo (0 =
+     * precios enteros)
+     * @param file Archivo de salida, que se reemplaza de forma atómica al
+     * terminar (ver {@link ReportWriter})
+     * @throws IOException Si ocurre un error de escritura
+     */
+    public static void writeSalesReport(Iterable<SalesEntry> salesEntries, int priceScale, Path file)
+            throws IOException {
+        try (ReportWriter writer = new ReportWriter(file)) {
+            for (SalesEntry entry : salesEntries) {
+                writer.write(entry.name).write(';');
+                if (entry.largeTotal != null) {
+                    writer.writeDecimal(entry.largeTotal, priceScale);
+                } else {
+                    writer.writeDecimal(entry.total, priceScale);
+                }
+                writer.write('\n');
+            }
+            writer.commit();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Ordena los productos vendidos por cantidad descendente y, en empate,
+     * por ID ascendente.
+     *
+     * @param totals Totales agregados de los archivos de ventas
+     * @return Entradas ordenadas
+     */
+    public static List<ProductEntry> sortProducts(SalesTotals totals) {
+        List<ProductEntry> sortedSales = new ArrayList<>();
+        totals.forEachSoldProduct((id, quantity) -> sortedSales.add(new ProductEntry(id, quantity)));
+        sortedSales.sort(PRODUCT_ORDER);
+        return sortedSales;
+    }
+
+    /**
+     * Ordena los productos como {@link #sortProducts(SalesTotals)} pero con a
+     * lo sumo {@code memoryBudget} entradas en memoria; el resto se escribe en
+     * corridas temporales.
+     *
+     * @param totals Totales agregados de los archivos de ventas
+     * @param memoryBudget Número máximo de entradas en memoria
+     * @param tempDir Directorio para las corridas temporales
+     * @return Resultado ordenado, que debe cerrarse para borrar los
+     * temporales
+     * @throws IOException Si no se pueden escribir las corridas
+     */
+    public static ExternalSorter<ProductEntry> sortProducts(SalesTotals totals, int memoryBudget, Path tempDir)
+            throws IOException {
+        ExternalSorter<ProductEntry> sorter = new ExternalSorter<>(PRODUCT_ORDER, PRODUCT_CODEC, memoryBudget,
+                tempDir);
+        try {
+            ProductCatalog catalog = totals.getCatalog();
+            for (int i = 0; i < catalog.size(); i++) {
+                if (totals.isSold(i)) {
+                    sorter.add(new ProductEntry(catalog.getId(i), totals.getProductQuantity(i)));
+                }
+            }
+            totals.forEachUnknownProduct((id, quantity) -> {
+                try {
+                    sorter.add(new ProductEntry(id, quantity));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (IOException | UncheckedIOException e) {
+            sorter.close();
+            throw e instanceof UncheckedIOException ? ((UncheckedIOException) e).getCause() : (IOException) e;
+        }
+        return sorter;
+    }
+
+    /**
+     * Obtiene los N vendedores con mayor total, en el mismo orden que
+     * {@link #sortSalesmen(SalesTotals)}.
+     *
+     * @param totals Totales agregados de los archivos de ventas
+     * @param limit Número máximo de vendedores
+     * @param threads Número de hilos para recorrer los vendedores
+     * @return Entradas ordenadas, como máximo {@code limit}
+     */
+    public static List<SalesEntry> topSalesmen(SalesTotals totals, int limit, int threads) {
+        Comparator<Integer> order = (a, b) -> {
+            int cmp = compareRevenue(totals, b, a);
+            return cmp != 0 ? cmp : Integer.compare(a, b);
+        };
+        BoundedHeap<Integer> top = scan(totals.getSalesmen().size(), threads, limit, order, (from, to, heap) -> {
+            for (int i = from; i < to; i++) {
+                heap.offer(i);
+            }
+        });
+
+        List<Salesman> salesmen = totals.getSalesmen();
+        List<Integer> sorted = top.sorted();
+        List<SalesEntry> salesEntries = new ArrayList<>(sorted.size());
+        for (int i : sorted) {
+            String name = salesmen.get(i).getName();
+            salesEntries.add(totals.isLargeRevenue(i)
+                    ? new SalesEntry(name, totals.getExactRevenue(i))
+                    : new SalesEntry(name, totals.getRevenue(i)));
+        }
+        return salesEntries;
+    }
+
+    /**
+     * Obtiene los N productos más vendidos, en el mismo orden que
+     * {@link #sortProducts(SalesTotals)}.
+     *
+     * @param totals Totales agregados de los archivos de ventas
+     * @param limit Número máximo de productos
+     * @param threads Número de hilos para recorrer el catálogo
+     * @return Entradas ordenadas, como máximo {@code limit}
+     */
+    public static List<ProductEntry> topProducts(SalesTotals totals, int limit, int threads) {
+        ProductCatalog catalog = totals.getCatalog();
+        BoundedHeap<ProductEntry> top = scan(catalog.size(), threads, limit, PRODUCT_ORDER, (from, to, heap) -> {
+            for (int i = from; i < to; i++) {
+                long quantity = totals.getProductQuantity(i);
+                ProductEntry worst = heap.worst();
+                if (totals.isSold(i) && (worst == null || quantity >= worst.quantity)) {
+                    heap.offer(new ProductEntry(catalog.getId(i), quantity));
+                }
+            }
+        });
+        totals.forEachUnknownProduct((id, quantity) -> top.offer(new ProductEntry(id, quantity)));
+        return top.sorted();
+    }
+
+    private static int compareRevenue(SalesTotals totals, int a, int b) {
+        if (!totals.isLargeRevenue(a) && !totals.isLargeRevenue(b)) {
+            return Long.compare(totals.getRevenue(a), totals.getRevenue(b));
+        }
+        return totals.getExactRevenue(a).compareTo(totals.getExactRevenue(b));
+    }
+
+    /**
+     * Reparte las posiciones {@code [0, count)} en rangos, llena un montículo
+     * acotado por rango y combina los montículos.
+     */
+    private static <T> BoundedHeap<T> scan(int count, int threads, int limit, Comparator<T> order,
+            RangeScanner<T> scanner) {
+        int workers = Math.max(1, Math.min(threads, count / MIN_RANGE_PER_THREAD));
+        if (workers == 1) {
+            BoundedHeap<T> heap = new BoundedHeap<>(limit, order);
+            scanner.scan(0, count, heap);
+            return heap;
+        }
+
+        List<BoundedHeap<T>> heaps = new ArrayList<>(workers);
+        List<ForkJoinTask<?>> submitted = new ArrayList<>(workers);
+        ForkJoinPool pool = new ForkJoinPool(workers);
+        try {
+            for (int w = 0; w < workers; w++) {
+                int from = (int) ((long) count * w / workers);
+                int to = (int) ((long) count * (w + 1) / workers);
+                BoundedHeap<T> heap = new BoundedHeap<>(limit, order);
+                heaps.add(heap);
+                submitted.add(pool.submit(() -> scanner.scan(from, to, heap)));
+            }
+            for (ForkJoinTask<?> task : submitted) {
+                task.join();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        BoundedHeap<T> result = heaps.get(0);
+        for (int w = 1; w < workers; w++) {
+            result.addAll(heaps.get(w));
+        }
+        return result;
+    }
+
+    /**
+     * Recorre un rango de posiciones ofreciendo sus elementos al montículo.
+     */
+    private interface RangeScanner<T> {
+
+        void scan(int from, int to, BoundedHeap<T> heap);
+    }
+
+    /**
+     * Montículo de mínimos que conserva solo los N mejores elementos según
+     * el orden del reporte; la cabeza es el peor de los conservados.
+     */
+    private static class BoundedHeap<T> {
+
+        private final int limit;
+        private final Comparator<T> order;
+        private final PriorityQueue<T> heap;
+
+        BoundedHeap(int limit, Comparator<T> order) {
+            this.limit = limit;
+            this.order = order;
+            this.heap = new PriorityQueue<>(Math.min(limit, 1024), order.reversed());
+        }
+
+        /**
+         * Obtiene el peor elemento conservado si el montículo está lleno, para
+         * descartar candidatos sin crearlos.
+         *
+         * @return Cabeza del montículo, o {@code null} si aún hay espacio
+         */
+        T worst() {
+            return heap.size() < limit ? null : heap.peek();
+        }
+
+        void offer(T value) {
+            if (heap.size() < limit) {
+                heap.add(value);
+            } else if (order.compare(value, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(value);
+            }
+        }
+
+        void addAll(BoundedHeap<T> other) {
+            for (T value : other.heap) {
+                offer(value);
+            }
+        }
+
+        List<T> sorted() {
+            List<T> sorted = new ArrayList<>(heap);
+            sorted.sort(order);
+            return sorted;
+        }
+    }
+
+    /**
+     * Escribe el reporte de productos vendidos.
+     *
+     * @param sortedSales Entradas ordenadas
+     * @param file Archivo de salida, que se reemplaza de forma atómica al
+     * terminar (ver {@link ReportWriter})
+     * @throws IOException Si ocurre un error de escritura
+     */
+    public static void writeProductsReport(Iterable<ProductEntry> sortedSales, Path file) throws IOException {
+        try (ReportWriter writer = new ReportWriter(file)) {
+            writer.write("ProductID;TotalQuantity\n");
+            for (ProductEntry entry : sortedSales) {
+                writer.write(entry.id).write(';').write(entry.quantity).write('\n');
+            }
+            writer.commit();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Clase auxiliar para almacenar temporalmente datos de ventas.
+     */
+
+    public static class SalesEntry implements Comparable<SalesEntry> {
+
+        String name;
+        long total;
+        BigInteger largeTotal;
+
+        /**
+         * Crea una entrada de venta
+         *
+         * @param name Nombre del vendedor
+         * @param total Total de ventas
+         */
+
+        public SalesEntry(String name, long total) {
+            this.name = name;
+            this.total = total;
+        }
+
+        /**
+         * Crea una entrada de venta cuyo total no cabe en {@code long}
+         *
+         * @param name Nombre del vendedor
+         * @param largeTotal Total de ventas exacto
+         */
+
+        public SalesEntry(String name, BigInteger largeTotal) {
+            this.name = name;
+            this.largeTotal = largeTotal;
+        }
+
+        @Override
+        public int compareTo(SalesEntry other) {
+            if (largeTotal == null && other.largeTotal == null) {
+                return Long.compare(total, other.total);
+            }
+            return exactTotal().compareTo(other.exactTotal());
+        }
+
+        private BigInteger exactTotal() {
+            return largeTotal != null ? largeTotal : BigInteger.valueOf(total);
+        }
+
+        /**
+         * Da formato al total, con decimales si los precios los tienen.
+         *
+         * @param priceScale Cantidad de decimales de los precios
+         * @return Total formateado
+         */
+        String format(int priceScale) {
+            if (priceScale > 0) {
+                return new BigDecimal(exactTotal(), priceScale).toPlainString();
+            }
+            return largeTotal != null ? largeTotal.toString() : Long.toString(total);
+        }
+    }
+
+    /**
+     * Clase auxiliar para almacenar temporalmente la cantidad vendida de un
+     * producto.
+     */
+
+    public static class ProductEntry {
+
+        String id;
+        long quantity;
+
+        /**
+         * Crea una entrada de producto vendido
+         *
+         * @param id ID del producto
+         * @param quantity Cantidad total vendida
+         */
+
+        public ProductEntry(String id, long quantity) {
+            this.id = id;
+            this.quantity = quantity;
+        }
+    }
+}
@@ -0,0 +1,397 @@
+package org.poli.main;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Segmento de ventas compactado: las secciones de productos de muchos
+ * archivos {@code sales_<id>_<n>.csv} copiadas una tras otra, agrupadas por
+ * vendedor, con un índice al final del archivo.
+ *
+ * <pre>
+ * int    magic ("PSEG")
+ * int    versión
+ * byte[] líneas de producto, contiguas por vendedor
+ * índice:
+ *   int  cantidad de vendedores
+ *        por vendedor: texto ID, long desplazamiento, long longitud,
+ *                      int archivos de origen
+ *   int  cantidad de archivos de origen
+ *        por archivo: texto nombre, long tamaño, long fecha de modificación
+ * long   posición del índice
+ * int    magic ("PSEG")
+ * </pre>
+ *
+ * <p>
+ * Cada rango contiene líneas completas tal como estaban después del
+ * encabezado {@code ProductID}, por lo que se interpreta con el mismo
+ * {@link SalesLineParser} y da los mismos totales que los archivos
+ * originales. Al abrirse el segmento se mapea completo y cada rango se
+ * entrega como una vista del mapeo: leer un vendedor no abre archivos y los
+ * vendedores que no se piden no se leen.
+ * </p>
+ *
+ * <p>
+ * Los archivos de origen quedan registrados con su tamaño y fecha, de modo
+ * que si el compactador se interrumpe antes de archivarlos no se cuentan dos
+ * veces (ver {@link SalesFileIndex}).
+ * </p>
+ */
+public class SalesSegment {
+
+    /**
+     * Tamaño máximo de un segmento; el compactador empieza uno nuevo al
+     * alcanzarlo.
+     */
+    public static final long MAX_SIZE = 1L << 30;
+
+    private static final String PREFIX = "segment_";
+    private static final String SUFFIX = ".seg";
+    private static final int MAGIC = 0x50534547; // "PSEG"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int TRAILER_SIZE = 12;
+    private static final int MIN_REGION_SIZE = 4 * 1024 * 1024;
+
+    private final Path path;
+    private final MappedByteBuffer data;
+    private final Map<String, long[]> ranges;
+    private final Map<String, long[]> sources;
+
+    private SalesSegment(Path path, MappedByteBuffer data, Map<String, long[]> ranges,
+            Map<String, long[]> sources) {
+        this.path = path;
+        this.data = data;
+        this.ranges = ranges;
+        this.sources = sources;
+    }
+
+    /**
+     * Indica si un nombre de archivo corresponde a un segmento.
+     *
+     * @param fileName Nombre del archivo
+     * @return {@code true} si tiene el formato {@code segment_<n>.seg}
+     */
+    public static boolean isSegmentName(String fileName) {
+        return fileName.startsWith(PREFIX) && fileName.endsWith(SUFFIX);
+    }
+
+    /**
+     * Patrón de búsqueda de los segmentos de un directorio.
+     *
+     * @return Patrón glob
+     */
+    static String glob() {
+        return PREFIX + "*" + SUFFIX;
+    }
+
+    /**
+     * Calcula el nombre del siguiente segmento de un directorio.
+     *
+     * @param dir Directorio de datos
+     * @return Ruta libre con el siguiente número de secuencia
+     * @throws IOException Si no se puede listar el directorio
+     */
+    public static Path nextPath(Path dir) throws IOException {
+        long last = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, glob())) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                try {
+                    last = Math.max(last, Long.parseLong(
+                            name.substring(PREFIX.length(), name.length() - SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    // no es un segmento numerado
+                }
+            }
+        }
+        return dir.resolve(String.format("%s%06d%s", PREFIX, last + 1, SUFFIX));
+    }
+
+    /**
+     * Abre un segmento, mapeándolo en memoria y leyendo su índice.
+     *
+     * @param path Archivo del segmento
+     * @return Segmento abierto
+     * @throws IOException Si no se puede leer o el formato es inválido
+     */
+    public static SalesSegment open(Path path) throws IOException {
+        MappedByteBuffer data;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE + TRAILER_SIZE || size > Integer.MAX_VALUE) {
+                throw new IOException("Tamaño de segmento inválido: " + path);
+            }
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        int size = data.capacity();
+        if (data.getInt(0) != MAGIC || data.getInt(size - 4) != MAGIC) {
+            throw new IOException("No es un segmento de ventas: " + path);
+        }
+        if (data.getInt(4) != VERSION) {
+            throw new IOException("Versión de segmento no soportada: " + data.getInt(4));
+        }
+        long footer = data.getLong(size - TRAILER_SIZE);
+        if (footer < HEADER_SIZE || footer > size - TRAILER_SIZE) {
+            throw new IOException("Índice de segmento inválido: " + path);
+        }
+        byte[] index = new byte[(int) (size - TRAILER_SIZE - footer)];
+        data.get((int) footer, index);
+
+        Map<String, long[]> ranges = new LinkedHashMap<>();
+        Map<String, long[]> sources = new HashMap<>();
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(index))) {
+            int salesmen = in.readInt();
+            for (int i = 0; i < salesmen; i++) {
+                String id = in.readUTF();
+                long offset = in.readLong();
+                long length = in.readLong();
+                int files = in.readInt();
+                if (offset < HEADER_SIZE || length < 0 || offset + length > footer) {
+                    throw new IOException("Rango inválido para el vendedor " + id + " en " + path);
+                }
+                ranges.put(id, new long[] {offset, length, files});
+            }
+            int files = in.readInt();
+            for (int i = 0; i < files; i++) {
+                String name = in.readUTF();
+                sources.put(name, new long[] {in.readLong(), in.readLong()});
+            }
+        } catch (EOFException e) {
+            throw new IOException("Índice de segmento truncado: " + path, e);
+        }
+        return new SalesSegment(path, data, ranges, sources);
+    }
+
+    /**
+     * Obtiene la ruta del segmento.
+     *
+     * @return Archivo del segmento
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Indica si el segmento tiene ventas del vendedor dado.
+     *
+     * @param salesmanId ID del vendedor
+     * @return {@code true} si hay un rango para el vendedor
+     */
+    public boolean contains(String salesmanId) {
+        return ranges.containsKey(salesmanId);
+    }
+
+    /**
+     * Obtiene los IDs de vendedor del segmento, en el orden en que se
+     * escribieron.
+     *
+     * @return IDs de vendedor
+     */
+    public Set<String> salesmanIds() {
+        return Collections.unmodifiableSet(ranges.keySet());
+    }
+
+    /**
+     * Obtiene el tamaño en bytes del rango de un vendedor.
+     *
+     * @param salesmanId ID del vendedor
+     * @return Longitud del rango, o 0 si el vendedor no está
+     */
+    public long sizeOf(String salesmanId) {
+        long[] range = ranges.get(salesmanId);
+        return range != null ? range[1] : 0;
+    }
+
+    /**
+     * Indica si un archivo de ventas, con el tamaño y la fecha dados, ya
+     * está copiado en este segmento.
+     *
+     * @param fileName Nombre del archivo
+     * @param size Tamaño actual del archivo
+     * @param lastModified Fecha de modificación actual del archivo
+     * @return {@code true} si el segmento contiene esa versión del archivo
+     */
+    public boolean containsSource(String fileName, long size, long lastModified) {
+        long[] source = sources.get(fileName);
+        return source != null && source[0] == size && source[1] == lastModified;
+    }
+
+    /**
+     * Divide el rango de un vendedor en hasta {@code parts} regiones que
+     * empiezan al inicio de una línea, para interpretarlas en paralelo. Las
+     * regiones son vistas independientes del mapeo.
+     *
+     * @param salesmanId ID del vendedor
+     * @param parts Número deseado de regiones
+     * @return Regiones del rango, vacía si el vendedor no está
+     */
+    public List<ByteBuffer> regions(String salesmanId, int parts) {
+        long[] range = ranges.get(salesmanId);
+        if (range == null || range[1] == 0) {
+            return Collections.emptyList();
+        }
+        int from = (int) range[0];
+        int end = (int) (range[0] + range[1]);
+        int regionSize = (int) Math.max(MIN_REGION_SIZE, (range[1] + parts - 1) / Math.max(1, parts));
+        List<ByteBuffer> regions = new ArrayList<>();
+        while (from < end) {
+            int to = end - from <= regionSize ? end : nextLineStart(from + regionSize, end);
+            regions.add(data.slice(from, to - from));
+            from = to;
+        }
+        return regions;
+    }
+
+    private int nextLineStart(int position, int end) {
+        while (position < end) {
+            if (SalesLineParser.isLineEnd(data.get(position++))) {
+                break;
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Escribe un segmento nuevo. Los archivos de un mismo vendedor deben
+     * agregarse seguidos. El segmento se escribe en un archivo temporal y
+     * solo aparece con su nombre final al confirmarlo.
+     */
+    public static class Writer implements Closeable {
+
+        private final Path path;
+        private final Path temp;
+        private final FileChannel out;
+        private final Map<String, long[]> ranges = new LinkedHashMap<>();
+        private final Map<String, long[]> sources = new LinkedHashMap<>();
+        private final ByteBuffer newline = ByteBuffer.allocate(1);
+        private long position;
+        private long[] current;
+        private boolean committed;
+
+        /**
+         * Crea un segmento vacío.
+         *
+         * @param path Archivo final del segmento
+         * @throws IOException Si no se puede crear el archivo temporal
+         */
+        public Writer(Path path) throws IOException {
+            this.path = path;
+            this.temp = path.resolveSibling(path.getFileName() + ".tmp");
+            this.out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).flip();
+            write(header);
+        }
+
+        /**
+         * Copia la sección de productos de un archivo de ventas al rango de
+         * su vendedor, terminándola en salto de línea.
+         *
+         * @param salesmanId ID del vendedor dueño del archivo
+         * @param file Archivo de ventas
+         * @param lastModified Fecha de modificación del archivo
+         * @throws IOException Si no se puede leer o copiar el archivo
+         * @throws IllegalStateException Si el vendedor ya tenía un rango
+         * cerrado
+         */
+        public void add(String salesmanId, Path file, long lastModified) throws IOException {
+            long[] range = ranges.get(salesmanId);
+            if (range == null) {
+                current = new long[] {position, 0, 0};
+                ranges.put(salesmanId, current);
+            } else if (range != current) {
+                throw new IllegalStateException("Los archivos del vendedor " + salesmanId
+                        + " deben agregarse seguidos");
+            }
+            try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+                long size = in.size();
+                long start = MappedSalesFile.findProductsStart(in);
+                if (start >= 0 && start < size) {
+                    long copied = 0;
+                    while (copied < size - start) {
+                        copied += in.transferTo(start + copied, size - start - copied, out);
+                    }
+                    position += copied;
+                    newline.clear();
+                    in.read(newline, size - 1);
+                    if (newline.get(0) != '\n') {
+                        write(newline.clear().put((byte) '\n').flip());
+                    }
+                }
+                sources.put(file.getFileName().toString(), new long[] {size, lastModified});
+            }
+            current[1] = position - current[0];
+            current[2]++;
+        }
+
+        /**
+         * Obtiene el tamaño escrito hasta ahora.
+         *
+         * @return Bytes escritos, sin el índice
+         */
+        public long size() {
+            return position;
+        }
+
+        /**
+         * Escribe el índice, sincroniza el archivo y lo publica con su
+         * nombre final.
+         *
+         * @throws IOException Si ocurre un error de escritura
+         */
+        public void commit() throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream index = new DataOutputStream(bytes)) {
+                index.writeInt(ranges.size());
+                for (Map.Entry<String, long[]> range : ranges.entrySet()) {
+                    index.writeUTF(range.getKey());
+                    index.writeLong(range.getValue()[0]);
+                    index.writeLong(range.getValue()[1]);
+                    index.writeInt((int) range.getValue()[2]);
+                }
+                index.writeInt(sources.size());
+                for (Map.Entry<String, long[]> source : sources.entrySet()) {
+                    index.writeUTF(source.getKey());
+                    index.writeLong(source.getValue()[0]);
+                    index.writeLong(source.getValue()[1]);
+                }
+                index.writeLong(position);
+                index.writeInt(MAGIC);
+            }
+            write(ByteBuffer.wrap(bytes.toByteArray()));
+            out.force(true);
+            out.close();
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+            committed = true;
+        }
+
+        /**
+         * Cierra el segmento; si no se confirmó, borra el temporal.
+         *
+         * @throws IOException Si no se puede borrar el temporal
+         */
+        @Override
+        public void close() throws IOException {
+            out.close();
+            if (!committed) {
+                Files.deleteIfExists(temp);
+            }
+        }
+
+        private void write(ByteBuffer buffer) throws IOException {
+            position += buffer.remaining();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package org.poli.main;
+
+import java.math.BigInteger;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ObjLongConsumer;
+import org.poli.generatefiles.Salesman;
+
+/**
+ * Resultado de una pasada de agregación sobre los archivos de ventas: total
+ * vendido por cada vendedor y cantidad vendida por cada producto.
+ *
+ * <p>
+ * Las cantidades de los productos del catálogo se guardan en un arreglo
+ * indexado por su posición en el {@link ProductCatalog}; las de los IDs que no
+ * están en el catálogo, en un mapa aparte.
+ * </p>
+ *
+ * <p>
+ * Los totales por vendedor se guardan en un {@code long[]}; los pocos que no
+ * caben en {@code long} se guardan exactos como {@link BigInteger}.
+ * </p>
+ */
+public class SalesTotals {
+
+    private final List<Salesman> salesmen;
+    private final long[] revenue;
+    private final Map<Integer, BigInteger> largeRevenue = new HashMap<>();
+    private final ProductCatalog catalog;
+    private final long[] productQuantities;
+    private final BitSet soldProducts;
+    private final Map<String, Long> unknownQuantities;
+    private SalesCube cube;
+
+    /**
+     * Crea el resultado de una agregación.
+     *
+     * @param salesmen Vendedores en el orden en que fueron cargados
+     * @param revenue Total vendido por vendedor, alineado con {@code salesmen}
+     * @param revenueOverflow Monto adicional de los vendedores cuyo total
+     * desbordó {@code long} durante la acumulación
+     * @param catalog Catálogo de productos
+     * @param productQuantities Cantidad vendida por posición en el catálogo
+     * @param soldProducts Posiciones del catálogo que aparecieron en ventas
+     * @param unknownQuantities Cantidad vendida por ID fuera del catálogo
+     */
+    public SalesTotals(List<Salesman> salesmen, long[] revenue, Map<Integer, BigInteger> revenueOverflow,
+            ProductCatalog catalog, long[] productQuantities, BitSet soldProducts,
+            Map<String, Long> unknownQuantities) {
+        this.salesmen = salesmen;
+        this.revenue = revenue;
+        revenueOverflow.forEach((i, overflow) -> {
+            BigInteger exact = overflow.add(BigInteger.valueOf(revenue[i]));
+            if (exact.bitLength() < Long.SIZE) {
+                revenue[i] = exact.longValue();
+            } else {
+                largeRevenue.put(i, exact);
+            }
+        });
+        this.catalog = catalog;
+        this.productQuantities = productQuantities;
+        this.soldProducts = soldProducts;
+        this.unknownQuantities = unknownQuantities;
+    }
+
+    /**
+     * Obtiene los vendedores agregados.
+     *
+     * @return Lista de vendedores
+     */
+    public List<Salesman> getSalesmen() {
+        return salesmen;
+    }
+
+    /**
+     * Obtiene el total vendido por el vendedor en la posición dada.
+     *
+     * @param salesmanIndex Posición del vendedor en {@link #getSalesmen()}
+     * @return Total de ventas del vendedor
+     * @throws ArithmeticException Si el total no cabe en {@code long} (ver
+     * {@link #isLargeRevenue(int)})
+     */
+    public long getRevenue(int salesmanIndex) {
+        if (!largeRevenue.isEmpty() && largeRevenue.containsKey(salesmanIndex)) {
+            throw new ArithmeticException("El total del vendedor no cabe en long");
+        }
+        return revenue[salesmanIndex];
+    }
+
+    /**
+     * Indica si el total del vendedor no cabe en {@code long}.
+     *
+     * @param salesmanIndex Posición del vendedor en {@link #getSalesmen()}
+     * @return {@code true} si solo está disponible con
+     * {@link #getExactRevenue(int)}
+     */
+    public boolean isLargeRevenue(int salesmanIndex) {
+        return !largeRevenue.isEmpty() && largeRevenue.containsKey(salesmanIndex);
+    }
+
+    /**
+     * Obtiene el total exacto vendido por el vendedor en la posición dada.
+     *
+     * @param salesmanIndex Posición del vendedor en {@link #getSalesmen()}
+     * @return Total de ventas del vendedor
+     */
+    public BigInteger getExactRevenue(int salesmanIndex) {
+        BigInteger large = largeRevenue.get(salesmanIndex);
+        return large != null ? large : BigInteger.valueOf(revenue[salesmanIndex]);
+    }
+
+    /**
+     * Obtiene el catálogo de productos usado en la agregación.
+     *
+     * @return Catálogo de productos
+     */
+    public ProductCatalog getCatalog() {
+        return catalog;
+    }
+
+    /**
+     * Obtiene la cantidad vendida del producto en la posición dada del
+     * catálogo.
+     *
+     * @param productIndex Posición del producto
+     * @return Cantidad total vendida
+     */
+    public long getProductQuantity(int productIndex) {
+        return productQuantities[productIndex];
+    }
+
+    /**
+     * Indica si el producto en la posición dada del catálogo apareció en las
+     * ventas.
+     *
+     * @param productIndex Posición del producto
+     * @return {@code true} si tiene al menos una línea de venta
+     */
+    public boolean isSold(int productIndex) {
+        return soldProducts.get(productIndex);
+    }
+
+    /**
+     * Recorre los productos vendidos que no están en el catálogo, con su
+     * cantidad total vendida.
+     *
+     * @param action Acción que recibe el ID del producto y su cantidad
+     */
+    public void forEachUnknownProduct(ObjLongConsumer<String> action) {
+        unknownQuantities.forEach((id, quantity) -> action.accept(id, quantity));
+    }
+
+    /**
+     * Obtiene la cantidad vendida de un producto que no está en el catálogo.
+     *
+     * @param id ID del producto
+     * @return Cantidad total vendida, o -1 si no apareció en las ventas
+     */
+    public long getUnknownQuantity(String id) {
+        Long quantity = unknownQuantities.get(id);
+        return quantity != null ? quantity : -1;
+    }
+
+    /**
+     * Recorre cada producto que apareció en las ventas, del catálogo o no,
+     * con su cantidad total vendida.
+     *
+     * @param action Acción que recibe el ID del producto y su cantidad
+     */
+    public void forEachSoldProduct(ObjLongConsumer<String> action) {
+        for (int i = soldProducts.nextSetBit(0); i >= 0; i = soldProducts.nextSetBit(i + 1)) {
+            action.accept(catalog.getId(i), productQuantities[i]);
+        }
+        unknownQuantities.forEach((id, quantity) -> action.accept(id, quantity));
+    }
+
+    /**
+     * Obtiene el cubo vendedor × producto, si se pidió en la agregación.
+     *
+     * @return Cubo de ventas, o {@code null} si no se construyó
+     */
+    public SalesCube getCube() {
+        return cube;
+    }
+
+    void setCube(SalesCube cube) {
+        this.cube = cube;
+    }
+}
@@ -0,0 +1,160 @@
+package org.poli.main;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compacta los archivos de ventas pequeños de un directorio en segmentos
+ * ({@link SalesSegment}) y mueve los originales a {@code archive/}.
+ *
+ * <p>
+ * Cada segmento se publica completo antes de archivar sus archivos de
+ * origen. Si el proceso se interrumpe entre ambos pasos, el índice ya ignora
+ * los originales copiados y la siguiente compactación los archiva. Los
+ * archivos que alcanzan el umbral de {@code --mmap-threshold} (por defecto
+ * {@link ReportOptions#DEFAULT_MMAP_THRESHOLD} bytes) se dejan como están,
+ * porque ya se leen mapeados en memoria, y también los comprimidos, que ya
+ * ocupan poco y no se pueden copiar en crudo. Los archivos deben estar
+ * completos: uno que cambie durante la compactación se vuelve a leer como CSV
+ * además de su copia en el segmento.
+ * </p>
+ *
+ * <p>
+ * Si {@code archive/} ya tiene un archivo con el mismo nombre, de una
+ * compactación anterior, el original nuevo se archiva con un sufijo numérico
+ * ({@code sales_<id>_<n>.csv.1}, ...) y el anterior se conserva.
+ * </p>
+ */
+public class SegmentCompactor {
+
+    private static final String DATA_DIR = "data/";
+    private static final String ARCHIVE_DIR = "archive";
+
+    private SegmentCompactor() {
+    }
+
+    /**
+     * Compacta el directorio {@code data/}, o el directorio indicado como
+     * primer argumento. Los argumentos siguientes son opciones de
+     * {@link ReportOptions}; de ellas se usa {@code --mmap-threshold}, de
+     * modo que la compactación deja fuera los mismos archivos que la lectura
+     * mapea.
+     *
+     * @param args Directorio de datos opcional y opciones de los reportes
+     */
+    public static void main(String[] args) {
+        boolean hasDir = args.length > 0 && !args[0].startsWith("--");
+        Path dir = Paths.get(hasDir ? args[0] : DATA_DIR);
+        try {
+            ReportOptions options = ReportOptions.parse(hasDir ? Arrays.copyOfRange(args, 1, args.length) : args);
+            long start = System.nanoTime();
+            int files = compact(dir, options.getMmapThreshold());
+            if (files == 0) {
+                System.out.println("ℹ️ No hay archivos de ventas para compactar en " + dir);
+            } else {
+                System.out.println("✅ " + files + " archivos compactados en "
+                        + (System.nanoTime() - start) / 1_000_000 + " ms; originales en " + dir.resolve(ARCHIVE_DIR));
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("❌ Error al compactar los archivos de ventas: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Copia los archivos de ventas pequeños del directorio a segmentos
+     * nuevos, agrupados por vendedor, y archiva los originales. Usa el umbral
+     * de mapeo por defecto.
+     *
+     * @param dir Directorio de datos
+     * @return Número de archivos compactados
+     * @throws IOException Si no se puede escribir un segmento o archivar un
+     * original
+     */
+    public static int compact(Path dir) throws IOException {
+        return compact(dir, ReportOptions.DEFAULT_MMAP_THRESHOLD);
+    }
+
+    /**
+     * Copia los archivos de ventas menores que el umbral de mapeo a
+     * segmentos nuevos, agrupados por vendedor, y archiva los originales.
+     *
+     * @param dir Directorio de datos
+     * @param mmapThreshold Tamaño a partir del cual un archivo se lee mapeado
+     * y no se compacta
+     * @return Número de archivos compactados
+     * @throws IOException Si no se puede escribir un segmento o archivar un
+     * original
+     */
+    public static int compact(Path dir, long mmapThreshold) throws IOException {
+        SalesFileIndex index = SalesFileIndex.scan(dir);
+        List<Path> archived = new ArrayList<>(index.compactedFiles());
+        List<Path> pending = new ArrayList<>();
+        SalesSegment.Writer writer = null;
+        try {
+            for (String id : index.salesmanIds()) {
+                for (Path file : index.filesFor(id)) {
+                    long size = index.sizeOf(file);
+                    if (size >= mmapThreshold
+                            || Compression.detect(file) != Compression.Format.NONE) {
+                        continue;
+                    }
+                    if (writer != null && writer.size() + size > SalesSegment.MAX_SIZE) {
+                        publish(writer, pending, archived);
+                        writer.close();
+                        writer = null;
+                    }
+                    if (writer == null) {
+                        writer = new SalesSegment.Writer(SalesSegment.nextPath(dir));
+                    }
+                    writer.add(id, file, index.lastModifiedOf(file));
+                    pending.add(file);
+                }
+            }
+            if (writer != null) {
+                publish(writer, pending, archived);
+            }
+        } finally {
+            if (writer != null) {
+                writer.close();
+            }
+        }
+        archive(dir, archived);
+        return archived.size();
+    }
+
+    /**
+     * Confirma el segmento en curso y pasa sus archivos a la lista por
+     * archivar.
+     */
+    private static void publish(SalesSegment.Writer writer, List<Path> pending, List<Path> archived)
+            throws IOException {
+        writer.commit();
+        archived.addAll(pending);
+        pending.clear();
+    }
+
+    private static void archive(Path dir, List<Path> files) throws IOException {
+        if (files.isEmpty()) {
+            return;
+        }
+        Path archive = Files.createDirectories(dir.resolve(ARCHIVE_DIR));
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            Path target = archive.resolve(name);
+            for (int n = 1; ; n++) {
+                try {
+                    Files.move(file, target);
+                    break;
+                } catch (FileAlreadyExistsException e) {
+                    target = archive.resolve(name + "." + n);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package org.poli.generatefiles;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/**
+ * Pruebas del formato binario de catálogos (PCAT).
+ */
+public class BinaryCatalogTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void productsRoundTrip() throws IOException {
+        List<Product> products = Arrays.asList(
+                new Product("P001", "Café molido", 1500),
+                new Product("P002", "", 0),
+                new Product("P010", "Té verde ñandú", Integer.MAX_VALUE));
+        Path file = folder.getRoot().toPath().resolve("products.bin");
+        BinaryCatalog.writeProducts(products, file);
+
+        List<Product> read = BinaryCatalog.readProducts(file);
+        assertEquals(products.size(), read.size());
+        for (int i = 0; i < products.size(); i++) {
+            assertEquals(products.get(i).getId(), read.get(i).getId());
+            assertEquals(products.get(i).getName(), read.get(i).getName());
+            assertEquals(products.get(i).getPrice(), read.get(i).getPrice());
+        }
+    }
+
+    @Test
+    public void salesmenRoundTrip() throws IOException {
+        List<Salesman> salesmen = Arrays.asList(
+                new Salesman("CC", 44250756L, "Ana Roa"),
+                new Salesman("CE", 9321127609L, "José Rodríguez"),
+                new Salesman("CC", 44250756L, "Ana Roa"));
+        Path file = folder.getRoot().toPath().resolve("salesmen.bin");
+        BinaryCatalog.writeSalesmen(salesmen, file);
+
+        List<Salesman> read = BinaryCatalog.readSalesmen(file);
+        assertEquals(salesmen.size(), read.size());
+        for (int i = 0; i < salesmen.size(); i++) {
+            assertEquals(salesmen.get(i).getDocumentType(), read.get(i).getDocumentType());
+            assertEquals(salesmen.get(i).getId(), read.get(i).getId());
+            assertEquals(salesmen.get(i).getName(), read.get(i).getName());
+            assertEquals(salesmen.get(i).getId(), BinaryCatalog.salesmanId(read, i));
+        }
+    }
+
+    @Test
+    public void emptyCatalog() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("empty.bin");
+        BinaryCatalog.writeProducts(Collections.emptyList(), file);
+        assertTrue(BinaryCatalog.readProducts(file).isEmpty());
+    }
+
+    @Test
+    public void rejectsUnsupportedVersion() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("products.bin");
+        BinaryCatalog.writeProducts(Arrays.asList(new Product("P001", "Café", 10)), file);
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer.wrap(bytes).putShort(4, (short) 2);
+        Files.write(file, bytes);
+
+        try {
+            BinaryCatalog.readProducts(file);
+            fail("Se esperaba un error de versión");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("Versión"));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsOtherKind() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("products.bin");
+        BinaryCatalog.writeProducts(Arrays.asList(new Product("P001", "Café", 10)), file);
+        BinaryCatalog.readSalesmen(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsTruncatedFile() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("products.bin");
+        BinaryCatalog.writeProducts(Arrays.asList(new Product("P001", "Café", 10)), file);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 3));
+        BinaryCatalog.readProducts(file);
+    }
+}
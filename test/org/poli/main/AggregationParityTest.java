@@ -0,0 +1,189 @@
+package org.poli.main;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.poli.generatefiles.Product;
+import org.poli.generatefiles.Salesman;
+import static org.junit.Assert.*;
+
+/**
+ * Comprueba que los modos de agregación (secuencial, paralelo con y sin
+ * mapeo en memoria, por etapas, incremental y sobre segmentos compactados)
+ * dan los mismos totales y el mismo cubo, y que coinciden con los calculados
+ * al generar los archivos.
+ */
+public class AggregationParityTest {
+
+    private static final int PRODUCTS = 40;
+    private static final long[] IDS = {1001, 1002, 1003, 1004, 1005};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ProductCatalog catalog;
+    private List<Salesman> salesmen;
+    private Path dir;
+    private long[] expectedRevenue;
+    private long[] expectedQuantities;
+    private Map<String, Long> expectedUnknown;
+
+    @Before
+    public void setUp() throws IOException {
+        Random random = new Random(42);
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < PRODUCTS; i++) {
+            products.add(new Product(String.format("P%03d", i + 1), "Producto " + i, 1 + random.nextInt(5000)));
+        }
+        catalog = new ProductCatalog(products);
+        salesmen = new ArrayList<>();
+        for (long id : IDS) {
+            salesmen.add(new Salesman("CC", id, "Vendedor " + id));
+        }
+        // ID repetido: cada posición recibe las ventas de sus archivos.
+        salesmen.add(new Salesman("CC", IDS[1], "Vendedor repetido"));
+
+        dir = folder.newFolder("data").toPath();
+        expectedRevenue = new long[salesmen.size()];
+        expectedQuantities = new long[PRODUCTS];
+        expectedUnknown = new HashMap<>();
+        int file = 0;
+        for (long id : IDS) {
+            for (int n = 1; n <= 3; n++, file++) {
+                int lines = file == 4 ? 150_000 : random.nextInt(400);
+                String newline = file % 3 == 1 ? "\r\n" : file % 5 == 2 ? "\r" : "\n";
+                writeSalesFile(random, id, n, lines, newline, file % 4 == 3);
+            }
+        }
+    }
+
+    @Test
+    public void allModesMatch() throws IOException {
+        SalesFileIndex index = SalesFileIndex.scan(dir);
+        SalesTotals sequential = new SalesAggregator(catalog, 1, Long.MAX_VALUE, new PipelineMetrics(), true)
+                .aggregate(salesmen, index);
+        assertExpected(sequential);
+        String cube = cubeCsv(sequential);
+
+        Map<String, SalesTotals> modes = new LinkedHashMap<>();
+        modes.put("paralelo", new SalesAggregator(catalog, 4, Long.MAX_VALUE, new PipelineMetrics(), true)
+                .aggregate(salesmen, index));
+        modes.put("mmap", new SalesAggregator(catalog, 4, 1, new PipelineMetrics(), true).aggregate(salesmen, index));
+        modes.put("etapas", new PipelinedAggregator(catalog, 3, 2, new PipelineMetrics(), true)
+                .aggregate(salesmen, index));
+        modes.put("incremental", new IncrementalAggregator(catalog, 2, new PipelineMetrics(), true)
+                .aggregate(salesmen, index, folder.getRoot().toPath().resolve("checkpoint.bin")));
+        SegmentCompactor.compact(dir, 1);
+        modes.put("segmentos", new SalesAggregator(catalog, 4, 1, new PipelineMetrics(), true)
+                .aggregate(salesmen, SalesFileIndex.scan(dir)));
+        for (Map.Entry<String, SalesTotals> mode : modes.entrySet()) {
+            assertSameTotals(mode.getKey(), sequential, mode.getValue());
+            assertEquals(mode.getKey(), cube, cubeCsv(mode.getValue()));
+        }
+    }
+
+    /**
+     * Escribe un archivo de ventas con líneas al azar: productos del
+     * catálogo, productos desconocidos, líneas vacías y líneas mal formadas,
+     * y suma lo esperado. El archivo 2 de cada vendedor no termina en salto
+     * de línea.
+     */
+    private void writeSalesFile(Random random, long id, int n, int lines, String newline, boolean gzip)
+            throws IOException {
+        StringBuilder text = new StringBuilder();
+        text.append("TipoDocumentoVendedor;IDVendedor").append(newline).append("CC;").append(id).append(newline)
+                .append("ProductID;Quantity").append(newline);
+        long revenue = 0;
+        long[] quantities = new long[PRODUCTS];
+        Map<String, Long> unknown = new HashMap<>();
+        for (int i = 0; i < lines; i++) {
+            int kind = random.nextInt(50);
+            int quantity = 1 + random.nextInt(20);
+            if (kind == 0) {
+                String unknownId = "X" + random.nextInt(3);
+                text.append(unknownId).append(';').append(quantity);
+                unknown.merge(unknownId, (long) quantity, Long::sum);
+            } else if (kind == 1) {
+                text.append("P001;dos");
+            } else if (kind > 2) {
+                int product = random.nextInt(PRODUCTS);
+                text.append(catalog.getId(product)).append(';').append(quantity);
+                revenue += (long) catalog.getPrice(product) * quantity;
+                quantities[product] += quantity;
+            }
+            if (i < lines - 1 || n != 2) {
+                text.append(newline);
+            }
+        }
+        for (int s = 0; s < salesmen.size(); s++) {
+            if (salesmen.get(s).getId() == id) {
+                expectedRevenue[s] += revenue;
+                for (int p = 0; p < PRODUCTS; p++) {
+                    expectedQuantities[p] += quantities[p];
+                }
+                unknown.forEach((unknownId, quantity) -> expectedUnknown.merge(unknownId, quantity, Long::sum));
+            }
+        }
+
+        byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+        String name = "sales_" + id + "_" + n + ".csv";
+        if (gzip) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (OutputStream out = new GZIPOutputStream(compressed)) {
+                out.write(bytes);
+            }
+            Files.write(dir.resolve(name + ".gz"), compressed.toByteArray());
+        } else {
+            Files.write(dir.resolve(name), bytes);
+        }
+    }
+
+    private void assertExpected(SalesTotals totals) {
+        for (int s = 0; s < salesmen.size(); s++) {
+            assertEquals(BigInteger.valueOf(expectedRevenue[s]), totals.getExactRevenue(s));
+        }
+        for (int p = 0; p < PRODUCTS; p++) {
+            assertEquals(expectedQuantities[p], totals.getProductQuantity(p));
+            assertEquals(expectedQuantities[p] > 0, totals.isSold(p));
+        }
+        assertEquals(expectedUnknown, unknown(totals));
+    }
+
+    private static void assertSameTotals(String mode, SalesTotals expected, SalesTotals actual) {
+        for (int s = 0; s < expected.getSalesmen().size(); s++) {
+            assertEquals(mode, expected.getExactRevenue(s), actual.getExactRevenue(s));
+        }
+        for (int p = 0; p < expected.getCatalog().size(); p++) {
+            assertEquals(mode, expected.getProductQuantity(p), actual.getProductQuantity(p));
+            assertEquals(mode, expected.isSold(p), actual.isSold(p));
+        }
+        assertEquals(mode, unknown(expected), unknown(actual));
+    }
+
+    private static Map<String, Long> unknown(SalesTotals totals) {
+        Map<String, Long> unknown = new HashMap<>();
+        totals.forEachUnknownProduct(unknown::put);
+        return unknown;
+    }
+
+    private String cubeCsv(SalesTotals totals) throws IOException {
+        Path file = folder.getRoot().toPath().resolve("matrix.csv");
+        totals.getCube().writeCsv(0, file);
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,121 @@
+package org.poli.main;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/**
+ * Pruebas del ordenamiento externo: mismo resultado que un ordenamiento
+ * estable en memoria, con o sin corridas en disco.
+ */
+public class ExternalSorterTest {
+
+    /**
+     * Elemento con una clave de orden y su posición de llegada.
+     */
+    private static final class Item {
+
+        final int key;
+        final int arrival;
+
+        Item(int key, int arrival) {
+            this.key = key;
+            this.arrival = arrival;
+        }
+
+        @Override
+        public String toString() {
+            return key + "@" + arrival;
+        }
+    }
+
+    private static final Comparator<Item> BY_KEY = Comparator.comparingInt(item -> item.key);
+
+    private static final ExternalSorter.Codec<Item> CODEC = new ExternalSorter.Codec<>() {
+        @Override
+        public void write(DataOutput out, Item value) throws IOException {
+            out.writeInt(value.key);
+            out.writeInt(value.arrival);
+        }
+
+        @Override
+        public Item read(DataInput in) throws IOException {
+            return new Item(in.readInt(), in.readInt());
+        }
+    };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void stableInMemory() throws IOException {
+        assertStable(1000, 5000, 0);
+    }
+
+    @Test
+    public void stableWithRuns() throws IOException {
+        assertStable(1000, 50, 20);
+    }
+
+    @Test
+    public void stableWithMergePasses() throws IOException {
+        assertStable(2000, 7, 285);
+    }
+
+    @Test
+    public void closeDeletesRuns() throws IOException {
+        Path dir = folder.getRoot().toPath();
+        ExternalSorter<Item> sorter = new ExternalSorter<>(BY_KEY, CODEC, 3, dir);
+        for (int i = 0; i < 20; i++) {
+            sorter.add(new Item(20 - i, i));
+        }
+        assertEquals(1, sorter.iterator().next().key);
+        sorter.close();
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void iteratesOnce() throws IOException {
+        try (ExternalSorter<Item> sorter = new ExternalSorter<>(BY_KEY, CODEC, 10, folder.getRoot().toPath())) {
+            sorter.add(new Item(1, 0));
+            sorter.iterator();
+            sorter.iterator();
+        }
+    }
+
+    private void assertStable(int count, int memoryBudget, int expectedRuns) throws IOException {
+        Random random = new Random(count);
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            items.add(new Item(random.nextInt(10), i));
+        }
+        List<Item> expected = new ArrayList<>(items);
+        expected.sort(BY_KEY);
+
+        List<Item> sorted = new ArrayList<>();
+        try (ExternalSorter<Item> sorter = new ExternalSorter<>(BY_KEY, CODEC, memoryBudget,
+                folder.getRoot().toPath())) {
+            for (Item item : items) {
+                sorter.add(item);
+            }
+            assertEquals(expectedRuns, sorter.getSpilledRuns());
+            for (Item item : sorter) {
+                sorted.add(item);
+            }
+        }
+        assertEquals(expected.toString(), sorted.toString());
+    }
+}
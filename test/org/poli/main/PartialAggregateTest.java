@@ -0,0 +1,142 @@
+package org.poli.main;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.poli.generatefiles.Product;
+import org.poli.generatefiles.Salesman;
+import static org.junit.Assert.*;
+
+/**
+ * Pruebas del formato de agregados parciales (PAGG) y de su combinación.
+ */
+public class PartialAggregateTest {
+
+    private static final ProductCatalog CATALOG = new ProductCatalog(Arrays.asList(
+            new Product("P001", "Café", 100), new Product("P002", "Té", 250), new Product("P003", "Pan", 5)));
+    private static final List<Salesman> SALESMEN = Arrays.asList(
+            new Salesman("CC", 11, "Ana"), new Salesman("CC", 22, "Luis"), new Salesman("CE", 33, "Eva"));
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void roundTrip() throws IOException {
+        BigInteger large = BigInteger.valueOf(Long.MAX_VALUE).multiply(BigInteger.valueOf(3));
+        Path file = write(totals(new long[] {1500, 0, 7}, large), metrics(2, 90, 12, 1, 3), "a.pagg");
+
+        PipelineMetrics merged = new PipelineMetrics();
+        SalesTotals read = PartialAggregate.merge(Arrays.asList(file), CATALOG, SALESMEN, merged);
+        assertEquals(1500, read.getRevenue(0));
+        assertEquals(0, read.getRevenue(1));
+        assertTrue(read.isLargeRevenue(2));
+        assertEquals(large.add(BigInteger.valueOf(7)), read.getExactRevenue(2));
+        assertEquals(4, read.getProductQuantity(0));
+        assertFalse(read.isSold(1));
+        assertEquals(9, read.getProductQuantity(2));
+        assertEquals(6, read.getUnknownQuantity("X9"));
+        assertEquals(-1, read.getUnknownQuantity("X8"));
+        assertEquals(2, merged.getFiles());
+        assertEquals(90, merged.getBytes());
+        assertEquals(12, merged.getLines());
+        assertEquals(1, merged.getMalformedLines());
+        assertEquals(3, merged.getUnknownProductLines());
+    }
+
+    @Test
+    public void mergeAddsPartialsAndOverflowsToBigInteger() throws IOException {
+        long half = Long.MAX_VALUE / 2 + 1;
+        Path a = write(totals(new long[] {half, 1, 0}, null), metrics(1, 10, 2, 0, 1), "a.pagg");
+        Path b = write(totals(new long[] {half, 2, 0}, null), metrics(3, 30, 4, 1, 1), "b.pagg");
+
+        PipelineMetrics merged = new PipelineMetrics();
+        SalesTotals read = PartialAggregate.merge(Arrays.asList(a, b), CATALOG, SALESMEN, merged);
+        assertTrue(read.isLargeRevenue(0));
+        assertEquals(BigInteger.valueOf(half).shiftLeft(1), read.getExactRevenue(0));
+        assertEquals(3, read.getRevenue(1));
+        assertEquals(8, read.getProductQuantity(0));
+        assertEquals(18, read.getProductQuantity(2));
+        assertEquals(12, read.getUnknownQuantity("X9"));
+        assertEquals(4, merged.getFiles());
+        assertEquals(40, merged.getBytes());
+        assertEquals(6, merged.getLines());
+    }
+
+    @Test
+    public void rejectsUnsupportedVersion() throws IOException {
+        Path file = write(totals(new long[] {1, 2, 3}, null), new PipelineMetrics(), "a.pagg");
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer.wrap(bytes).putInt(4, 2);
+        Files.write(file, bytes);
+
+        try {
+            PartialAggregate.merge(Arrays.asList(file), CATALOG, SALESMEN, new PipelineMetrics());
+            fail("Se esperaba un error de versión");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("Versión"));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsOtherCatalog() throws IOException {
+        Path file = write(totals(new long[] {1, 2, 3}, null), new PipelineMetrics(), "a.pagg");
+        ProductCatalog other = new ProductCatalog(Arrays.asList(
+                new Product("P001", "Café", 101), new Product("P002", "Té", 250), new Product("P003", "Pan", 5)));
+        PartialAggregate.merge(Arrays.asList(file), other, SALESMEN, new PipelineMetrics());
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsOtherSalesmen() throws IOException {
+        Path file = write(totals(new long[] {1, 2, 3}, null), new PipelineMetrics(), "a.pagg");
+        List<Salesman> other = Arrays.asList(SALESMEN.get(1), SALESMEN.get(0), SALESMEN.get(2));
+        PartialAggregate.merge(Arrays.asList(file), CATALOG, other, new PipelineMetrics());
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsTruncatedFile() throws IOException {
+        Path file = write(totals(new long[] {1, 2, 3}, null), new PipelineMetrics(), "a.pagg");
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 4));
+        PartialAggregate.merge(Arrays.asList(file), CATALOG, SALESMEN, new PipelineMetrics());
+    }
+
+    /**
+     * Totales con P001 = 4 y P003 = 9 vendidos, P002 sin ventas y el producto
+     * X9 = 6 fuera del catálogo; {@code large} se suma al último vendedor.
+     */
+    private static SalesTotals totals(long[] revenue, BigInteger large) {
+        Map<Integer, BigInteger> overflow = new HashMap<>();
+        if (large != null) {
+            overflow.put(revenue.length - 1, large);
+        }
+        BitSet sold = new BitSet();
+        sold.set(0);
+        sold.set(2);
+        Map<String, Long> unknown = new HashMap<>();
+        unknown.put("X9", 6L);
+        return new SalesTotals(SALESMEN, revenue.clone(), overflow, CATALOG, new long[] {4, 0, 9}, sold, unknown);
+    }
+
+    private static PipelineMetrics metrics(long files, long bytes, long lines, long malformed, long unknown) {
+        PipelineMetrics metrics = new PipelineMetrics();
+        metrics.addFiles(files, bytes);
+        metrics.addLines(lines, malformed, unknown);
+        return metrics;
+    }
+
+    private Path write(SalesTotals totals, PipelineMetrics metrics, String name) throws IOException {
+        Path file = folder.getRoot().toPath().resolve(name);
+        PartialAggregate.write(totals, metrics, file);
+        return file;
+    }
+}
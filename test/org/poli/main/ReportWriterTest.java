@@ -0,0 +1,97 @@
+package org.poli.main;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/**
+ * Pruebas del escritor de reportes: publicación atómica, formato de números
+ * y compresión.
+ */
+public class ReportWriterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void targetChangesOnlyOnCommit() throws IOException {
+        Path target = folder.getRoot().toPath().resolve("report.csv");
+        Files.write(target, "anterior\n".getBytes(StandardCharsets.UTF_8));
+
+        try (ReportWriter writer = new ReportWriter(target)) {
+            writer.write("nuevo").write('\n');
+            assertEquals("anterior\n", read(target));
+            writer.commit();
+        }
+        assertEquals("nuevo\n", read(target));
+        assertEquals(1, fileCount());
+    }
+
+    @Test
+    public void closeWithoutCommitKeepsPreviousReport() throws IOException {
+        Path target = folder.getRoot().toPath().resolve("report.csv");
+        Files.write(target, "anterior\n".getBytes(StandardCharsets.UTF_8));
+
+        try (ReportWriter writer = new ReportWriter(target)) {
+            writer.write("a medias");
+            assertEquals(2, fileCount());
+        }
+        assertEquals("anterior\n", read(target));
+        assertEquals(1, fileCount());
+
+        Path missing = folder.getRoot().toPath().resolve("other.csv");
+        new ReportWriter(missing).close();
+        assertFalse(Files.exists(missing));
+        assertEquals(1, fileCount());
+    }
+
+    @Test
+    public void formatsNumbers() throws IOException {
+        Path target = folder.getRoot().toPath().resolve("numbers.csv");
+        try (ReportWriter writer = new ReportWriter(target)) {
+            writer.write(0).write(';').write(-42).write(';').write(Long.MIN_VALUE).write(';')
+                    .writeDecimal(12345, 2).write(';').writeDecimal(-5, 3).write(';').writeDecimal(7, 0).write(';')
+                    .writeDecimal(1, 20).write(';')
+                    .writeDecimal(BigInteger.valueOf(Long.MAX_VALUE).add(BigInteger.ONE), 2).write(';')
+                    .write("año €").write('\n');
+            writer.commit();
+        }
+        assertEquals("0;-42;-9223372036854775808;123.45;-0.005;7;0.00000000000000000001;92233720368547758.08;"
+                + "año €\n", read(target));
+    }
+
+    @Test
+    public void gzipTargetIsCompressed() throws IOException {
+        Path target = folder.getRoot().toPath().resolve("report.csv.gz");
+        StringBuilder expected = new StringBuilder();
+        try (ReportWriter writer = new ReportWriter(target)) {
+            for (int i = 0; i < 300_000; i++) {
+                writer.write("fila;").write(i).write('\n');
+                expected.append("fila;").append(i).append('\n');
+            }
+            writer.commit();
+        }
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(target))) {
+            assertEquals(expected.toString(), new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    private static String read(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+
+    private long fileCount() throws IOException {
+        try (Stream<Path> files = Files.list(folder.getRoot().toPath())) {
+            return files.count();
+        }
+    }
+}
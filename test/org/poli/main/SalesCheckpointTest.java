@@ -0,0 +1,135 @@
+package org.poli.main;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.poli.generatefiles.Product;
+import org.poli.generatefiles.Salesman;
+import static org.junit.Assert.*;
+
+/**
+ * Pruebas del punto de control del modo incremental: suma y resta de los
+ * agregados por archivo y persistencia.
+ */
+public class SalesCheckpointTest {
+
+    private static final ProductCatalog CATALOG = new ProductCatalog(Arrays.asList(
+            new Product("P001", "Café", 100), new Product("P002", "Té", 250), new Product("P003", "Pan", 5)));
+    private static final List<Salesman> SALESMEN = Arrays.asList(
+            new Salesman("CC", 11, "Ana"), new Salesman("CC", 22, "Luis"));
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void addSumsEachFile() {
+        SalesCheckpoint checkpoint = new SalesCheckpoint(CATALOG);
+        checkpoint.add("sales_11_1.csv", entry("11", 700, new int[] {0, 1}, new long[] {2, 2}));
+        checkpoint.add("sales_11_2.csv", entry("11", 100, new int[] {0, -1}, new long[] {1, 5}));
+        checkpoint.add("sales_22_1.csv", entry("22", 15, new int[] {2}, new long[] {3}));
+
+        SalesTotals totals = checkpoint.toTotals(SALESMEN, CATALOG);
+        assertEquals(800, totals.getRevenue(0));
+        assertEquals(15, totals.getRevenue(1));
+        assertEquals(3, totals.getProductQuantity(0));
+        assertEquals(2, totals.getProductQuantity(1));
+        assertEquals(3, totals.getProductQuantity(2));
+        assertEquals(5, totals.getUnknownQuantity("X9"));
+        assertEquals(new HashSet<>(Arrays.asList("sales_11_1.csv", "sales_11_2.csv", "sales_22_1.csv")),
+                checkpoint.fileNames());
+    }
+
+    @Test
+    public void replacingAndRemovingSubtractPreviousEntry() {
+        SalesCheckpoint checkpoint = new SalesCheckpoint(CATALOG);
+        checkpoint.add("sales_11_1.csv", entry("11", 700, new int[] {0, 1}, new long[] {2, 2}));
+        checkpoint.add("sales_11_2.csv", entry("11", 100, new int[] {0, -1}, new long[] {1, 5}));
+        checkpoint.add("sales_11_1.csv", entry("11", 250, new int[] {1}, new long[] {1}));
+
+        SalesTotals totals = checkpoint.toTotals(SALESMEN, CATALOG);
+        assertEquals(350, totals.getRevenue(0));
+        assertEquals(1, totals.getProductQuantity(0));
+        assertEquals(1, totals.getProductQuantity(1));
+        assertFalse(totals.isSold(2));
+
+        checkpoint.remove("sales_11_2.csv");
+        checkpoint.remove("sales_33_1.csv");
+        totals = checkpoint.toTotals(SALESMEN, CATALOG);
+        assertEquals(250, totals.getRevenue(0));
+        assertFalse(totals.isSold(0));
+        assertEquals(0, totals.getProductQuantity(0));
+        assertEquals(-1, totals.getUnknownQuantity("X9"));
+        assertNull(checkpoint.get("sales_11_2.csv"));
+        assertEquals(Collections.singleton("sales_11_1.csv"), checkpoint.fileNames());
+    }
+
+    @Test
+    public void saveAndLoadRoundTrip() throws IOException {
+        SalesCheckpoint checkpoint = new SalesCheckpoint(CATALOG);
+        BigInteger large = BigInteger.valueOf(Long.MAX_VALUE).add(BigInteger.TEN);
+        checkpoint.add("sales_11_1.csv", new SalesCheckpoint.FileEntry(40, 1234, 99, "11", large,
+                new int[] {0, -1}, new String[] {null, "X9"}, new long[] {2, 5}, new long[] {1, 1}));
+        checkpoint.add("sales_22_1.csv", entry("22", 15, new int[] {2}, new long[] {3}));
+        Path file = folder.getRoot().toPath().resolve("checkpoint.bin");
+        checkpoint.save(file);
+
+        SalesCheckpoint loaded = SalesCheckpoint.load(file, CATALOG);
+        assertEquals(checkpoint.fileNames(), loaded.fileNames());
+        SalesCheckpoint.FileEntry entry = loaded.get("sales_11_1.csv");
+        assertEquals(40, entry.size);
+        assertEquals(1234, entry.lastModified);
+        assertEquals(99, entry.crc);
+        SalesTotals totals = loaded.toTotals(SALESMEN, CATALOG);
+        assertTrue(totals.isLargeRevenue(0));
+        assertEquals(large, totals.getExactRevenue(0));
+        assertEquals(15, totals.getRevenue(1));
+        assertEquals(2, totals.getProductQuantity(0));
+        assertEquals(3, totals.getProductQuantity(2));
+        assertEquals(5, totals.getUnknownQuantity("X9"));
+        assertEquals(checkpoint.toCube(SALESMEN, CATALOG).cellCount(), loaded.toCube(SALESMEN, CATALOG).cellCount());
+    }
+
+    @Test
+    public void loadStartsOverWhenCatalogOrVersionChanges() throws IOException {
+        SalesCheckpoint checkpoint = new SalesCheckpoint(CATALOG);
+        checkpoint.add("sales_11_1.csv", entry("11", 700, new int[] {0}, new long[] {7}));
+        Path file = folder.getRoot().toPath().resolve("checkpoint.bin");
+        checkpoint.save(file);
+
+        ProductCatalog other = new ProductCatalog(Arrays.asList(
+                new Product("P001", "Café", 100), new Product("P002", "Té", 250)));
+        assertTrue(SalesCheckpoint.load(file, other).fileNames().isEmpty());
+
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer.wrap(bytes).putInt(4, 2);
+        Files.write(file, bytes);
+        assertTrue(SalesCheckpoint.load(file, CATALOG).fileNames().isEmpty());
+
+        assertTrue(SalesCheckpoint.load(file.resolveSibling("missing.bin"), CATALOG).fileNames().isEmpty());
+    }
+
+    /**
+     * Entrada de un archivo con una línea por producto; las posiciones -1 son
+     * el producto X9, fuera del catálogo.
+     */
+    private static SalesCheckpoint.FileEntry entry(String salesmanId, long revenue, int[] products,
+            long[] quantities) {
+        String[] unknownIds = new String[products.length];
+        long[] lines = new long[products.length];
+        for (int i = 0; i < products.length; i++) {
+            unknownIds[i] = products[i] < 0 ? "X9" : null;
+            lines[i] = 1;
+        }
+        return new SalesCheckpoint.FileEntry(0, 0, 0, salesmanId, BigInteger.valueOf(revenue), products,
+                unknownIds, quantities, lines);
+    }
+}
@@ -0,0 +1,128 @@
+package org.poli.main;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.poli.generatefiles.Product;
+import org.poli.generatefiles.Salesman;
+import static org.junit.Assert.*;
+
+/**
+ * Pruebas del cubo vendedor × producto: orden de las filas (CSR) y de las
+ * columnas (CSC), montos que no caben en {@code long} y exportación CSV.
+ */
+public class SalesCubeTest {
+
+    private static final ProductCatalog CATALOG = new ProductCatalog(Arrays.asList(
+            new Product("P001", "Café", 100), new Product("P002", "Té", 250), new Product("P003", "Pan", 5),
+            new Product("P004", "Auto", Integer.MAX_VALUE)));
+    private static final List<Salesman> SALESMEN = Arrays.asList(
+            new Salesman("CC", 11, "Ana"), new Salesman("CC", 22, "Luis"), new Salesman("CE", 33, "Eva"));
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private SalesCube cube;
+
+    @Before
+    public void setUp() {
+        SalesCube.Builder first = new SalesCube.Builder();
+        first.add(0, 0, 2);
+        first.add(0, 1, 2);
+        first.add(0, 2, 100);
+        first.add(1, 2, 3_000_000_000L);
+        first.add(2, 3, 10_000_000_000L);
+        SalesCube.Builder second = new SalesCube.Builder();
+        second.add(0, 0, 3);
+        second.add(0, 3, 1);
+        second.add(1, 0, 7);
+        second.add(2, 1, 3);
+        second.add(2, 0, 7);
+        first.merge(second);
+        cube = first.build(SALESMEN, CATALOG);
+    }
+
+    @Test
+    public void productsOrderedByRevenueThenCatalog() {
+        assertEquals(9, cube.cellCount());
+        SalesCube.Slice row = cube.productsOf(0);
+        assertArrayEquals(new int[] {3, 0, 1, 2}, products(row));
+        assertEquals(5, row.getQuantity(1));
+        assertEquals(500, row.getRevenue(1));
+        assertEquals(500, row.getRevenue(3));
+        assertEquals(0, row.getSalesmanIndex(3));
+
+        assertArrayEquals(new int[] {3, 1, 0}, products(cube.productsOf(2)));
+    }
+
+    @Test
+    public void salesmenOrderedByQuantityThenPosition() {
+        assertArrayEquals(new int[] {1, 2, 0}, salesmen(cube.salesmenOf(0, 10)));
+        SalesCube.Slice top = cube.salesmenOf(0, 2);
+        assertArrayEquals(new int[] {1, 2}, salesmen(top));
+        assertEquals(0, top.getProductIndex(1));
+        assertEquals(7, top.getQuantity(1));
+        assertEquals(0, cube.salesmenOf(1, 0).size());
+    }
+
+    @Test
+    public void quantitiesBeyondIntegerAreOrdered() {
+        SalesCube.Slice column = cube.salesmenOf(2, 10);
+        assertArrayEquals(new int[] {1, 0}, salesmen(column));
+        assertEquals(3_000_000_000L, column.getQuantity(0));
+        assertEquals(15_000_000_000L, column.getRevenue(0));
+        assertArrayEquals(new int[] {2, 0}, salesmen(cube.salesmenOf(3, 10)));
+    }
+
+    @Test
+    public void largeRevenueIsExact() {
+        SalesCube.Slice row = cube.productsOf(2);
+        assertTrue(row.isLargeRevenue(0));
+        assertFalse(row.isLargeRevenue(1));
+        BigInteger expected = BigInteger.valueOf(Integer.MAX_VALUE).multiply(BigInteger.valueOf(10_000_000_000L));
+        assertEquals(expected, row.getExactRevenue(0));
+        assertEquals(BigInteger.valueOf(750), row.getExactRevenue(1));
+        assertEquals("214748364700000000.00", row.format(0, 2));
+    }
+
+    @Test
+    public void csvFollowsListAndCatalogOrder() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("matrix.csv");
+        cube.writeCsv(0, file);
+        assertEquals("SalesmanID;ProductID;Quantity;Revenue\n"
+                + "11;P001;5;500\n"
+                + "11;P002;2;500\n"
+                + "11;P003;100;500\n"
+                + "11;P004;1;2147483647\n"
+                + "22;P001;7;700\n"
+                + "22;P003;3000000000;15000000000\n"
+                + "33;P001;7;700\n"
+                + "33;P002;3;750\n"
+                + "33;P004;10000000000;21474836470000000000\n",
+                new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+    }
+
+    private static int[] products(SalesCube.Slice slice) {
+        int[] products = new int[slice.size()];
+        for (int i = 0; i < products.length; i++) {
+            products[i] = slice.getProductIndex(i);
+        }
+        return products;
+    }
+
+    private static int[] salesmen(SalesCube.Slice slice) {
+        int[] salesmen = new int[slice.size()];
+        for (int i = 0; i < salesmen.length; i++) {
+            salesmen[i] = slice.getSalesmanIndex(i);
+        }
+        return salesmen;
+    }
+}
@@ -0,0 +1,122 @@
+package org.poli.main;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import org.poli.generatefiles.Product;
+import static org.junit.Assert.*;
+
+/**
+ * Pruebas del intérprete de archivos de ventas sobre bytes.
+ */
+public class SalesLineParserTest {
+
+    private static final ProductCatalog CATALOG = new ProductCatalog(Arrays.asList(
+            new Product("P001", "Café", 100), new Product("P002", "Té", 250)));
+
+    @Test
+    public void skipsLinesBeforeHeader() throws IOException {
+        SalesLineParser parser = new SalesLineParser(CATALOG);
+        List<String> lines = parse(parser, "P001;9\nTipoDocumentoVendedor;IDVendedor\nCC;11\n"
+                + "ProductID;Quantity\nP001;2\nP002;3\n");
+        assertEquals(Arrays.asList("0=2", "1=3"), lines);
+        assertEquals(2, parser.getLines());
+    }
+
+    @Test
+    public void acceptsEveryLineEnding() throws IOException {
+        String expected = "[0=2, 1=3, X9=4]";
+        for (String newline : new String[] {"\n", "\r\n", "\r"}) {
+            String text = String.join(newline, "CC;11", "ProductID;Quantity", "P001;2", "P002;3", "X9;4");
+            assertEquals(expected, parse(new SalesLineParser(CATALOG), text + newline).toString());
+            assertEquals(expected, parse(new SalesLineParser(CATALOG), text).toString());
+        }
+    }
+
+    @Test
+    public void countsMalformedLines() throws IOException {
+        SalesLineParser parser = new SalesLineParser(CATALOG);
+        List<String> lines = parse(parser, "ProductID;Quantity\nP001\nP001;\nP001;dos\nP001;99999999999\n\n"
+                + "P002;-1\nP001;+5;extra\n");
+        assertEquals(Arrays.asList("1=-1", "0=5"), lines);
+        assertEquals(6, parser.getLines());
+        assertEquals(4, parser.getMalformedLines());
+    }
+
+    @Test
+    public void headerCanStartTheFile() throws IOException {
+        assertEquals(Arrays.asList("0=1"), parse(new SalesLineParser(CATALOG), "ProductID;Quantity\rP001;1"));
+    }
+
+    @Test
+    public void containsHeaderChecksWholeLines() {
+        byte[] crlf = "CC;11\r\nProductID;Quantity\r\n".getBytes(StandardCharsets.US_ASCII);
+        assertTrue(SalesLineParser.containsHeader(crlf, 0, crlf.length));
+        byte[] cr = "CC;11\rProductID".getBytes(StandardCharsets.US_ASCII);
+        assertTrue(SalesLineParser.containsHeader(cr, 0, cr.length));
+        byte[] inside = "CC;ProductID\nP001;2\n".getBytes(StandardCharsets.US_ASCII);
+        assertFalse(SalesLineParser.containsHeader(inside, 0, inside.length));
+    }
+
+    @Test
+    public void parsesBlocksAndRegions() {
+        byte[] bytes = "P001;2\r\nP002;3\rP001;4".getBytes(StandardCharsets.US_ASCII);
+        List<String> fromBlock = new ArrayList<>();
+        new SalesLineParser(CATALOG).parse(bytes, 0, bytes.length, true, collect(fromBlock));
+        assertEquals(Arrays.asList("0=2", "1=3", "0=4"), fromBlock);
+
+        List<String> fromRegion = new ArrayList<>();
+        new SalesLineParser(CATALOG).parse(ByteBuffer.wrap(bytes), true, collect(fromRegion));
+        assertEquals(fromBlock, fromRegion);
+    }
+
+    @Test
+    public void longLinesGrowTheBuffer() throws IOException {
+        StringBuilder text = new StringBuilder("ProductID;Quantity\n");
+        char[] longId = new char[200_000];
+        Arrays.fill(longId, 'Z');
+        text.append(longId).append(";7\nP002;1\n");
+        List<String> lines = new ArrayList<>();
+        new SalesLineParser(CATALOG).parse(new ByteArrayInputStream(text.toString().getBytes(StandardCharsets.UTF_8)),
+                collect(lines));
+        assertEquals(2, lines.size());
+        assertEquals(new String(longId) + "=7", lines.get(0));
+        assertEquals("1=1", lines.get(1));
+    }
+
+    /**
+     * Interpreta el texto leyéndolo de a pocos bytes, para que las líneas
+     * queden partidas entre lecturas.
+     */
+    private static List<String> parse(SalesLineParser parser, String text) throws IOException {
+        List<String> lines = new ArrayList<>();
+        InputStream in = new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 3));
+            }
+        };
+        parser.parse(in, collect(lines));
+        return lines;
+    }
+
+    private static SalesLineParser.LineHandler collect(List<String> lines) {
+        return new SalesLineParser.LineHandler() {
+            @Override
+            public void onProduct(int productIndex, int quantity) {
+                lines.add(productIndex + "=" + quantity);
+            }
+
+            @Override
+            public void onUnknownProduct(String productId, int quantity) {
+                lines.add(productId + "=" + quantity);
+            }
+        };
+    }
+}
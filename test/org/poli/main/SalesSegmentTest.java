@@ -0,0 +1,127 @@
+package org.poli.main;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/**
+ * Pruebas del formato de segmentos de ventas (PSEG).
+ */
+public class SalesSegmentTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void roundTrip() throws IOException {
+        Path dir = folder.getRoot().toPath();
+        Path a1 = write(dir, "sales_11_1.csv",
+                "TipoDocumentoVendedor;IDVendedor\nCC;11\nProductID;Quantity\nP1;2\nP2;3\n");
+        Path a2 = write(dir, "sales_11_2.csv",
+                "TipoDocumentoVendedor;IDVendedor\r\nCC;11\r\nProductID;Quantity\r\nP3;4");
+        Path b1 = write(dir, "sales_22_1.csv",
+                "TipoDocumentoVendedor;IDVendedor\nCC;22\nProductID;Quantity\nP1;7\n");
+        Path segment = dir.resolve("segment_1.seg");
+        try (SalesSegment.Writer writer = new SalesSegment.Writer(segment)) {
+            writer.add("11", a1, 100);
+            writer.add("11", a2, 200);
+            writer.add("22", b1, 300);
+            writer.commit();
+        }
+
+        SalesSegment read = SalesSegment.open(segment);
+        assertEquals(Arrays.asList("11", "22"), List.copyOf(read.salesmanIds()));
+        assertTrue(read.contains("22"));
+        assertFalse(read.contains("33"));
+        // El \n de \r\n queda como línea vacía, que el intérprete ignora; al
+        // archivo sin salto final se le agrega uno.
+        assertEquals("P1;2\nP2;3\n\nP3;4\n", text(read.regions("11", 1)));
+        assertEquals("P1;7\n", text(read.regions("22", 4)));
+        assertEquals("P1;2\nP2;3\n\nP3;4\n".length(), read.sizeOf("11"));
+        assertTrue(read.regions("33", 1).isEmpty());
+        assertTrue(read.containsSource("sales_11_2.csv", Files.size(a2), 200));
+        assertFalse(read.containsSource("sales_11_2.csv", Files.size(a2), 201));
+        assertFalse(read.containsSource("sales_33_1.csv", 0, 0));
+    }
+
+    @Test
+    public void closeWithoutCommitLeavesNothing() throws IOException {
+        Path dir = folder.getRoot().toPath();
+        Path file = write(dir, "sales_11_1.csv", "ProductID;Quantity\nP1;2\n");
+        try (SalesSegment.Writer writer = new SalesSegment.Writer(dir.resolve("segment_1.seg"))) {
+            writer.add("11", file, 0);
+        }
+        try (var files = Files.list(dir)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsInterleavedSalesmen() throws IOException {
+        Path dir = folder.getRoot().toPath();
+        Path a = write(dir, "sales_11_1.csv", "ProductID;Quantity\nP1;2\n");
+        Path b = write(dir, "sales_22_1.csv", "ProductID;Quantity\nP1;2\n");
+        try (SalesSegment.Writer writer = new SalesSegment.Writer(dir.resolve("segment_1.seg"))) {
+            writer.add("11", a, 0);
+            writer.add("22", b, 0);
+            writer.add("11", a, 0);
+        }
+    }
+
+    @Test
+    public void rejectsUnsupportedVersion() throws IOException {
+        Path dir = folder.getRoot().toPath();
+        Path file = write(dir, "sales_11_1.csv", "ProductID;Quantity\nP1;2\n");
+        Path segment = dir.resolve("segment_1.seg");
+        try (SalesSegment.Writer writer = new SalesSegment.Writer(segment)) {
+            writer.add("11", file, 0);
+            writer.commit();
+        }
+        byte[] bytes = Files.readAllBytes(segment);
+        ByteBuffer.wrap(bytes).putInt(4, 2);
+        Files.write(segment, bytes);
+
+        try {
+            SalesSegment.open(segment);
+            fail("Se esperaba un error de versión");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("Versión"));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsMissingTrailer() throws IOException {
+        Path dir = folder.getRoot().toPath();
+        Path file = write(dir, "sales_11_1.csv", "ProductID;Quantity\nP1;2\n");
+        Path segment = dir.resolve("segment_1.seg");
+        try (SalesSegment.Writer writer = new SalesSegment.Writer(segment)) {
+            writer.add("11", file, 0);
+            writer.commit();
+        }
+        byte[] bytes = Files.readAllBytes(segment);
+        Files.write(segment, Arrays.copyOf(bytes, bytes.length - 1));
+        SalesSegment.open(segment);
+    }
+
+    private static Path write(Path dir, String name, String content) throws IOException {
+        return Files.write(dir.resolve(name), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String text(List<ByteBuffer> regions) {
+        StringBuilder text = new StringBuilder();
+        for (ByteBuffer region : regions) {
+            byte[] bytes = new byte[region.remaining()];
+            region.duplicate().get(bytes);
+            text.append(new String(bytes, StandardCharsets.UTF_8));
+        }
+        return text.toString();
+    }
+}